@@ -0,0 +1,69 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the clique search of ClusterFinder on random graphs: enumerating all maximal cliques at once (batch mode),
+ * and updating them edge by edge as the graph grows (online mode)
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CliqueBenchmark {
+
+    @Param({"1000", "100000"})
+    public int numNodes;
+
+    @Param({"4", "32"})
+    public int avgDegree;
+
+    private int[] edges;
+    private Graph g;
+
+    @Setup
+    public void setUp() {
+        edges = SyntheticGraphs.randomEdges(numNodes, avgDegree, 42L);
+        g = SyntheticGraphs.buildGraph(edges);
+    }
+
+    /**
+     * @return Returns the maximal cliques of the whole graph
+     */
+    @Benchmark
+    public ClusterSet findAllClusters() {
+        ClusterFinder finder = new ClusterFinder(g);
+        finder.findAllClusters();
+        return finder.getClusters();
+    }
+
+    /**
+     * @return Returns the maximal cliques of the whole graph, found by adding one edge after the other
+     */
+    @Benchmark
+    public ClusterSet updateClustersEdge() {
+        Graph growing = new Graph();
+        ClusterFinder finder = new ClusterFinder(growing);
+        for (int i = 0; i < edges.length; i += 2) {
+            growing.addEdge(edges[i], edges[i + 1]);
+            growing.addEdge(edges[i + 1], edges[i]);
+            finder.updateClustersEdge(edges[i], edges[i + 1]);
+        }
+        return finder.getClusters();
+    }
+}
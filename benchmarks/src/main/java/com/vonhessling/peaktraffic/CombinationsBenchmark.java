@@ -0,0 +1,67 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures generating all t-combinations of n indices: materialized as lists by Utils.getTCombinations(), and visited
+ * in place by Utils.visitTCombinations(). Run with -prof gc to compare the bytes allocated per operation: the lists cost
+ * one List and t Integers per combination, the visitor only the visitor itself per operation.
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CombinationsBenchmark {
+
+    @Param({"10", "30"})
+    public int n;
+
+    @Param({"2", "3", "4"})
+    public int t;
+
+    private int[] combination;
+
+    @Setup
+    public void setUp() {
+        combination = new int[t];
+    }
+
+    /**
+     * @return Returns all t-combinations of 0...n-1
+     */
+    @Benchmark
+    public List<List<Integer>> getTCombinations() {
+        return Utils.getTCombinations(t, n);
+    }
+
+    /**
+     * @param blackhole Consumes the combinations
+     * @return Returns whether all combinations were visited
+     */
+    @Benchmark
+    public boolean visitTCombinations(final Blackhole blackhole) {
+        return Utils.visitTCombinations(t, n, combination, new Utils.CombinationVisitor() {
+            public boolean visit(int[] c) {
+                blackhole.consume(c[t - 1]);
+                return true;
+            }
+        });
+    }
+}
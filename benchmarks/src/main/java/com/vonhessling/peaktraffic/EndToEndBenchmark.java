@@ -0,0 +1,84 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the clusters of a synthetic log written by WorkloadGenerator, from reading the file to the maximal
+ * clusters, without printing them. Goes through AbstractDetector.readClusters(), so the ingest path is chosen like in a real run.
+ * The samples in var/ are not used: peaktraffic.txt and peaktraffic1.txt separate their fields by spaces rather than tabs,
+ * so every line of them is skipped, and the tab-separated ones have at most 1437 lines, far too few to show any scaling.
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EndToEndBenchmark {
+
+    @Param({"10000", "100000"})
+    public int numNodes;
+
+    @Param({"4", "32"})
+    public int avgDegree;
+
+    @Param({"online", "batch"})
+    public String mode;
+
+    @Param({"1", "4"})
+    public int numThreads;
+
+    private File logFile;
+    private File expectedFile;
+
+    /**
+     * Writes the log: numNodes users with avgDegree interactions each on average, sent or received, and the default planted clusters
+     * @throws IOException Throws IOException if error occurs writing the log.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("peaktraffic", ".txt");
+        expectedFile = File.createTempFile("peaktraffic", ".expected");
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setNumNodes(numNodes);
+        generator.setNumLines((long) numNodes * avgDegree / 2);
+        generator.setSeed(42L);
+        generator.generate(logFile.getPath(), expectedFile.getPath());
+    }
+
+    /**
+     * Deletes the log
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logFile.delete();
+        expectedFile.delete();
+    }
+
+    /**
+     * @return Returns the maximal clusters
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    @Benchmark
+    public ClusterSet findClusters() throws IOException {
+        AbstractDetector detector = "batch".equals(mode) ? new BatchDetector() : new OnlineDetector();
+        return detector.readClusters(logFile.getPath(), numThreads);
+    }
+}
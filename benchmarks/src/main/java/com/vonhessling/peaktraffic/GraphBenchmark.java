@@ -0,0 +1,81 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures the basic operations of Graph on random graphs
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    private static final int NUM_QUERIES = 1024;
+
+    @Param({"1000", "100000"})
+    public int numNodes;
+
+    @Param({"4", "32"})
+    public int avgDegree;
+
+    private int[] edges;
+    private Graph g;
+    private int[] queries; // pairs of nodes; every other one is an edge
+
+    @Setup
+    public void setUp() {
+        edges = SyntheticGraphs.randomEdges(numNodes, avgDegree, 42L);
+        g = SyntheticGraphs.buildGraph(edges);
+        Random random = new Random(7L);
+        queries = new int[2 * NUM_QUERIES];
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            if (i % 2 == 0) {
+                int edge = random.nextInt(edges.length / 2);
+                queries[2 * i] = edges[2 * edge];
+                queries[2 * i + 1] = edges[2 * edge + 1];
+            } else {
+                queries[2 * i] = random.nextInt(numNodes);
+                queries[2 * i + 1] = random.nextInt(numNodes);
+            }
+        }
+    }
+
+    /**
+     * @param blackhole Consumes the results
+     */
+    @Benchmark
+    @OperationsPerInvocation(NUM_QUERIES)
+    public void containsEdge(Blackhole blackhole) {
+        for (int i = 0; i < queries.length; i += 2) {
+            blackhole.consume(g.containsEdge(queries[i], queries[i + 1]));
+        }
+    }
+
+    /**
+     * Builds the whole graph, registering each edge at both nodes
+     * @return Returns the graph
+     */
+    @Benchmark
+    public Graph addEdge() {
+        return SyntheticGraphs.buildGraph(edges);
+    }
+}
@@ -0,0 +1,89 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how ingesting a synthetic log with ParallelIngester scales with the number of threads: parsing the chunks alone,
+ * and parsing them and merging them into a detector's dictionary and graphs, which runs on a single thread. The difference
+ * between both is the serial part bounding the speedup; no clusters are enumerated.
+ * @author hessling
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IngestBenchmark {
+
+    @Param({"1", "2", "4", "8", "16", "32", "64"})
+    public int numThreads;
+
+    @Param({"10000000"})
+    public long numLines;
+
+    private File logFile;
+
+    /**
+     * Writes the log: numLines lines among a million users, with the default planted clusters
+     * @throws IOException Throws IOException if error occurs writing the log.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = File.createTempFile("peaktraffic", ".txt");
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setNumLines(numLines);
+        generator.setSeed(42L);
+        generator.generate(logFile.getPath(), null);
+    }
+
+    /**
+     * Deletes the log
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        logFile.delete();
+    }
+
+    /**
+     * @return Returns the number of lines parsed
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    @Benchmark
+    public long parse() throws IOException {
+        final long[] numLinesParsed = new long[1];
+        new ParallelIngester(numThreads).ingest(logFile.getPath(), new ParallelIngester.ChunkConsumer() {
+            public void consumeChunk(ParallelIngester.Chunk chunk) {
+                numLinesParsed[0] += chunk.getNumLines();
+            }
+        });
+        return numLinesParsed[0];
+    }
+
+    /**
+     * @return Returns the detector holding the merged dictionary and graphs
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    @Benchmark
+    public BatchDetector parseAndMerge() throws IOException {
+        BatchDetector detector = new BatchDetector();
+        new ParallelIngester(numThreads).ingest(logFile.getPath(), detector);
+        return detector;
+    }
+}
@@ -0,0 +1,76 @@
+package com.vonhessling.peaktraffic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures recording single interactions (AbstractDetector.updateGraphs(): the reciprocity lookup and, for verifying
+ * interactions, adding the edge to the verified graph), fed through handleRecord() so neither parsing nor interning is included.
+ * The batch detector does no work per verified edge, so only the graph bookkeeping is measured. Each invocation replays
+ * the whole stream into a fresh detector, so new pairs, verifying interactions and repetitions keep the mix of the stream;
+ * divide by the number of interactions for the time per interaction.
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InteractionBenchmark {
+
+    @Param({"1000", "100000"})
+    public int numNodes;
+
+    @Param({"4", "32"})
+    public int avgDegree;
+
+    private int[] interactions;
+    private ByteBuffer dictionary;
+    private int[] offsets;
+    private BatchDetector detector;
+
+    @Setup
+    public void setUp() {
+        interactions = SyntheticGraphs.interactions(SyntheticGraphs.randomEdges(numNodes, avgDegree, 42L), 20, 7L);
+        StringBuilder emails = new StringBuilder();
+        offsets = new int[numNodes + 1];
+        for (int node = 0; node < numNodes; node++) {
+            emails.append(node).append("@example.com");
+            offsets[node + 1] = emails.length();
+        }
+        dictionary = ByteBuffer.wrap(emails.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Creates the fresh detector for the next replay; interning the dictionary is not measured. Even the smallest replay
+     * takes most of a millisecond, so the timing around per-invocation setups is negligible.
+     */
+    @Setup(Level.Invocation)
+    public void setUpDetector() {
+        detector = new BatchDetector();
+        detector.handleDictionary(dictionary, offsets, numNodes);
+    }
+
+    @Benchmark
+    public BatchDetector updateGraphs() {
+        for (int i = 0; i < interactions.length; i += 2) {
+            detector.handleRecord(interactions[i], interactions[i + 1], 0);
+        }
+        return detector;
+    }
+}
@@ -0,0 +1,80 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how the online detector copes with growing clusters: several cliques are built up edge by edge in random order,
+ * so most new edges merge smaller clusters into larger ones, whose subsumed predecessors are removed right away.
+ * This is the work the former subset cleanup pass did, and it grows with the cluster size.
+ * @author hessling
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SubsumptionBenchmark {
+
+    @Param({"8", "16", "32", "64"})
+    public int clusterSize;
+
+    @Param({"1", "100"})
+    public int numClusters;
+
+    private int[] edges;
+
+    @Setup
+    public void setUp() {
+        int edgesPerCluster = clusterSize * (clusterSize - 1) / 2;
+        edges = new int[2 * numClusters * edgesPerCluster];
+        int i = 0;
+        for (int c = 0; c < numClusters; c++) {
+            int first = c * clusterSize;
+            for (int node1 = first; node1 < first + clusterSize; node1++) {
+                for (int node2 = node1 + 1; node2 < first + clusterSize; node2++) {
+                    edges[i++] = node1;
+                    edges[i++] = node2;
+                }
+            }
+        }
+        Random random = new Random(42L);
+        for (int e = edges.length / 2 - 1; e > 0; e--) { // shuffle the edges
+            int f = random.nextInt(e + 1);
+            int node1 = edges[2 * e];
+            int node2 = edges[2 * e + 1];
+            edges[2 * e] = edges[2 * f];
+            edges[2 * e + 1] = edges[2 * f + 1];
+            edges[2 * f] = node1;
+            edges[2 * f + 1] = node2;
+        }
+    }
+
+    /**
+     * @return Returns the clusters, one per clique
+     */
+    @Benchmark
+    public ClusterSet updateClustersEdge() {
+        Graph g = new Graph();
+        ClusterFinder finder = new ClusterFinder(g);
+        for (int i = 0; i < edges.length; i += 2) {
+            g.addEdge(edges[i], edges[i + 1]);
+            g.addEdge(edges[i + 1], edges[i]);
+            finder.updateClustersEdge(edges[i], edges[i + 1]);
+        }
+        return finder.getClusters();
+    }
+}
@@ -0,0 +1,95 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates the random inputs of the benchmarks; the same seed always yields the same input.
+ * @author hessling
+ */
+final class SyntheticGraphs {
+
+    private SyntheticGraphs() {
+    }
+
+    /**
+     * Generates a random graph where each pair of nodes is connected with the same probability
+     * @param numNodes The number of nodes
+     * @param avgDegree The expected number of neighbors per node
+     * @param seed The seed of the random numbers
+     * @return Returns the pairs of nodes of the distinct undirected edges, without edges from a node to itself
+     */
+    static int[] randomEdges(int numNodes, int avgDegree, long seed) {
+        Random random = new Random(seed);
+        int numEdges = (int) Math.min((long) numNodes * avgDegree / 2, (long) numNodes * (numNodes - 1) / 2);
+        Set<Long> seen = new HashSet<Long>();
+        int[] edges = new int[2 * numEdges];
+        int i = 0;
+        while (i < numEdges) {
+            int node1 = random.nextInt(numNodes);
+            int node2 = random.nextInt(numNodes);
+            if (node1 == node2 || !seen.add(((long) Math.min(node1, node2) << 32) | Math.max(node1, node2))) {
+                continue;
+            }
+            edges[2 * i] = node1;
+            edges[2 * i + 1] = node2;
+            i++;
+        }
+        return edges;
+    }
+
+    /**
+     * Builds the undirected graph of the given edges
+     * @param edges The pairs of nodes of the edges
+     * @return Returns the graph, each edge registered at both nodes
+     */
+    static Graph buildGraph(int[] edges) {
+        Graph g = new Graph();
+        for (int i = 0; i < edges.length; i += 2) {
+            g.addEdge(edges[i], edges[i + 1]);
+            g.addEdge(edges[i + 1], edges[i]);
+        }
+        return g;
+    }
+
+    /**
+     * Generates an interaction stream where each undirected edge is sent in both directions, in random order,
+     * and some interactions are repeated
+     * @param edges The pairs of nodes of the undirected edges
+     * @param repeatPercent The percentage of interactions that are sent twice
+     * @param seed The seed of the random numbers
+     * @return Returns the (from, to) pairs of the interactions
+     */
+    static int[] interactions(int[] edges, int repeatPercent, long seed) {
+        Random random = new Random(seed);
+        int numEdges = edges.length / 2;
+        int[] directed = new int[4 * numEdges];
+        int numDirected = 0;
+        for (int i = 0; i < numEdges; i++) {
+            int copies = 1 + (random.nextInt(100) < repeatPercent ? 1 : 0);
+            for (int c = 0; c < copies; c++) {
+                if (2 * numDirected + 4 > directed.length) {
+                    directed = Arrays.copyOf(directed, 2 * directed.length);
+                }
+                directed[2 * numDirected] = edges[2 * i];
+                directed[2 * numDirected + 1] = edges[2 * i + 1];
+                numDirected++;
+                directed[2 * numDirected] = edges[2 * i + 1];
+                directed[2 * numDirected + 1] = edges[2 * i];
+                numDirected++;
+            }
+        }
+        for (int i = numDirected - 1; i > 0; i--) { // Fisher-Yates shuffle of the pairs
+            int j = random.nextInt(i + 1);
+            int from = directed[2 * i];
+            int to = directed[2 * i + 1];
+            directed[2 * i] = directed[2 * j];
+            directed[2 * i + 1] = directed[2 * j + 1];
+            directed[2 * j] = from;
+            directed[2 * j + 1] = to;
+        }
+        return Arrays.copyOf(directed, 2 * numDirected);
+    }
+}
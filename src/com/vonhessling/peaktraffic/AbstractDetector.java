@@ -0,0 +1,441 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * The parts shared by all cluster detectors: reading the input, converting email addresses into node IDs,
+ * detecting mutual interactions and printing the clusters.
+ * Subclasses decide when the clusters are enumerated: on every newly verified edge, or once at the end.
+ * @author hessling
+ */
+public abstract class AbstractDetector implements MappedLogParser.LineHandler, ParallelIngester.ChunkConsumer, BinaryEdgeLog.RecordHandler {
+
+    protected static final int MIN_CLUSTER_SIZE = 3; // the minimal cluster size we're interested in
+
+    private EmailInterner emails = new EmailInterner(); // maps email bytes <-> ID; IDs are assigned densely, starting at 0
+
+    private ReciprocityMap interactions = new ReciprocityMap(); // the interaction state of each pair of nodes: which directions occurred, whether verified
+    private Graph verifiedGraph = new Graph(); // each edge is undirected and registered at both nodes (duplicate)
+    private ConnectedComponents components = new ConnectedComponents(); // the connected components of the verified graph
+    private int numThreads = 1; // the number of threads the current run may use
+    private InteractionWindow window; // the interactions within the sliding time window, or null if all interactions are kept
+    private int[] binaryToNodeIds; // maps the IDs of the binary edge log being read to node IDs
+    private DetectorMetrics metrics; // counts what the pipeline does, or null if metrics are disabled
+    private long numLinesRead = 0;     // the lines (or records) read so far; read racily by the periodic IngestEvent
+    private long numEdgesVerified = 0; // the edges added to the verified graph so far; read racily by the periodic IngestEvent
+
+   /**
+    * Runs the cluster detection algorithm.
+    * @param fileName The file name from which to read input data
+    * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+    * @throws IOException Throws IOException if error occurs reading the file.
+    */
+    public void findClusters(String fileName) throws FileNotFoundException, IOException {
+        findClusters(fileName, 1);
+    }
+
+   /**
+    * Runs the cluster detection algorithm, parsing the input on the given number of threads.
+    * Parsing and interning run in parallel on newline-aligned chunks of the file; the chunks' edges are then
+    * merged into the graphs in file order, which yields the same clusters as a sequential run.
+    * Binary edge logs (see BinaryEdgeLog) are recognized by their first bytes and read without parsing.
+    * @param fileName The file name from which to read input data
+    * @param numThreads The number of threads used for parsing (and by subclasses able to enumerate clusters in parallel); 1 parses on the calling thread
+    * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+    * @throws IOException Throws IOException if error occurs reading the file.
+    */
+    public void findClusters(String fileName, int numThreads) throws FileNotFoundException, IOException {
+        printClusters(readClusters(fileName, numThreads));
+    }
+
+   /**
+    * Runs the cluster detection algorithm like findClusters(), but returns the clusters instead of printing them.
+    * @param fileName The file name from which to read input data
+    * @param numThreads The number of threads used for parsing (and by subclasses able to enumerate clusters in parallel); 1 parses on the calling thread
+    * @return Returns the maximal clusters of the verified graph; must not be modified
+    * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+    * @throws IOException Throws IOException if error occurs reading the file.
+    */
+    public ClusterSet readClusters(String fileName, int numThreads) throws FileNotFoundException, IOException {
+        this.numThreads = numThreads;
+        Runnable ingestEvents = startIngestEvents();
+        try {
+            // let potential FileNotFoundException and IOException propagate out
+            if (BinaryEdgeLog.isBinary(fileName)) {
+                BinaryEdgeLog.read(fileName, this); // calls handleDictionary() once, then handleRecord() for every record
+                binaryToNodeIds = null;
+            } else if (numThreads > 1 && window == null) { // chunks drop repeated interactions, which would no longer be within the window
+                new ParallelIngester(numThreads).ingest(fileName, this); // calls consumeChunk() for every chunk, in file order
+            } else {
+                new MappedLogParser().parse(fileName, this); // calls handleLine() for every input line
+            }
+        } finally {
+            stopIngestEvents(ingestEvents);
+        }
+        return collectClusters();
+    }
+
+    /**
+     * Starts emitting a periodic IngestEvent with the throughput since the previous one, if Flight Recorder is running.
+     * Registering a periodic event initializes Flight Recorder, which takes a noticeable time; so nothing is registered
+     * unless it is running already, e.g. started with -XX:StartFlightRecording, and recordings started later on miss these events.
+     * @return Returns the hook to pass to stopIngestEvents(), or null if Flight Recorder is not running
+     */
+    protected Runnable startIngestEvents() {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        Runnable hook = new Runnable() {
+            private long lastLines = numLinesRead;
+            private long lastEdges = numEdgesVerified;
+            private long lastTime = System.nanoTime();
+
+            public void run() {
+                long lines = numLinesRead;
+                long edges = numEdgesVerified;
+                long time = System.nanoTime();
+                IngestEvent event = new IngestEvent();
+                event.lines = lines - lastLines;
+                event.linesPerSecond = (time > lastTime) ? (lines - lastLines) * 1e9 / (time - lastTime) : 0;
+                event.edgesVerified = edges - lastEdges;
+                event.totalLines = lines;
+                event.totalEdgesVerified = edges;
+                event.commit();
+                lastLines = lines;
+                lastEdges = edges;
+                lastTime = time;
+            }
+        };
+        FlightRecorder.addPeriodicEvent(IngestEvent.class, hook);
+        return hook;
+    }
+
+    /**
+     * Stops emitting the periodic IngestEvent
+     * @param hook The hook returned by startIngestEvents(), or null
+     */
+    protected void stopIngestEvents(Runnable hook) {
+        if (hook != null) {
+            FlightRecorder.removePeriodicEvent(hook);
+        }
+    }
+
+    /**
+     * Only keeps the interactions of the last windowSeconds seconds, as determined by the timestamps of the input lines:
+     * a verified edge is removed as soon as one of its directions has not occurred within the window anymore,
+     * and subclasses are notified through edgeExpired(). Lines whose timestamp cannot be parsed are skipped.
+     * The input is parsed on a single thread then.
+     * @param windowSeconds The length of the window in seconds
+     */
+    public void setWindow(int windowSeconds) {
+        window = new InteractionWindow(windowSeconds);
+    }
+
+    /**
+     * Enables counting what the pipeline does: lines, verified and skipped interactions, and, depending on the subclass,
+     * the work and time spent on updating the clusters
+     * @param metrics The metrics to update, or null to disable metrics
+     */
+    public void setMetrics(DetectorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return Returns the metrics to update, or null if metrics are disabled
+     */
+    protected DetectorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Returns the number of threads the current run may use
+     */
+    protected int getNumThreads() {
+        return numThreads;
+    }
+
+    /**
+     * Called after the entire input has been read.
+     * @return Returns the maximal clusters of the verified graph
+     */
+    protected abstract ClusterSet collectClusters();
+
+    /**
+     * Called whenever an interaction between the two nodes has become mutual, i.e. an edge has been added to the verified graph.
+     * @param fromId The ID of the node from which the verifying interaction occurred
+     * @param toId The ID of the node towards which the verifying interaction occurred
+     */
+    protected abstract void edgeVerified(int fromId, int toId);
+
+    /**
+     * Called whenever an edge has been removed from the verified graph because one of its directions has left the time window.
+     * @param node1 The first node of the removed edge
+     * @param node2 The second node of the removed edge
+     */
+    protected abstract void edgeExpired(int node1, int node2);
+
+    /**
+     * Processes a single input line: converts the email addresses into IDs and records the edge between them.
+     * With a time window, the interactions that left the window by the line's timestamp are expired first.
+     * @param buffer The buffer containing the line
+     * @param dateStart The index of the first byte of the date
+     * @param dateEnd The index after the last byte of the date
+     * @param fromStart The index of the first byte of the sender's email
+     * @param fromEnd The index after the last byte of the sender's email
+     * @param toStart The index of the first byte of the recipient's email
+     * @param toEnd The index after the last byte of the recipient's email
+     */
+    public void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd) {
+        numLinesRead++;
+        if (metrics != null) {
+            metrics.linesParsed.increment();
+        }
+        int time = 0;
+        if (window != null) {
+            time = TimestampParser.parse(buffer, dateStart, dateEnd);
+            if (time == TimestampParser.INVALID) {
+                if (metrics != null) {
+                    metrics.invalidTimestamps.increment();
+                }
+                return;
+            }
+        }
+        int fromId = getNodeId(buffer, fromStart, fromEnd); // convert email addresses into IDs
+        int toId = getNodeId(buffer, toStart, toEnd);
+        processInteraction(fromId, toId, time);
+    }
+
+    /**
+     * Maps the IDs of a binary edge log's dictionary to node IDs
+     * @param dictionary The buffer containing the emails' bytes
+     * @param offsets The start of each email in the dictionary; offsets[numEmails] is the end of the last email
+     * @param numEmails The number of emails
+     */
+    public void handleDictionary(ByteBuffer dictionary, int[] offsets, int numEmails) {
+        binaryToNodeIds = new int[numEmails];
+        for (int i = 0; i < numEmails; i++) {
+            binaryToNodeIds[i] = emails.intern(dictionary, offsets[i], offsets[i + 1]);
+        }
+    }
+
+    /**
+     * Processes a single record of a binary edge log like the line it was converted from
+     * @param fromId The ID of the sender in the binary edge log's dictionary
+     * @param toId The ID of the recipient in the binary edge log's dictionary
+     * @param time The seconds since the epoch, or TimestampParser.INVALID
+     */
+    public void handleRecord(int fromId, int toId, int time) {
+        numLinesRead++;
+        if (metrics != null) {
+            metrics.linesParsed.increment();
+        }
+        if (window != null && time == TimestampParser.INVALID) {
+            if (metrics != null) {
+                metrics.invalidTimestamps.increment();
+            }
+            return;
+        }
+        processInteraction(binaryToNodeIds[fromId], binaryToNodeIds[toId], time); // BinaryEdgeLog.read() checked the IDs
+    }
+
+    /**
+     * Records the interaction between the given nodes; with a time window, expires the interactions that left it first.
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred
+     * @param time The seconds since the epoch; only used with a time window
+     */
+    private void processInteraction(int fromId, int toId, int time) {
+        if (window != null) {
+            if (!window.advance(time)) { // too old to be within the window
+                if (metrics != null) {
+                    metrics.outsideWindow.increment();
+                }
+                return;
+            }
+            expireInteractions(); // right after the clock moved, even if this line is dropped below
+            if (fromId == toId) { // never verifies a pair, so it need not be kept in the window either
+                if (metrics != null) {
+                    metrics.selfInteractions.increment();
+                }
+                return;
+            }
+            window.record(fromId, toId, time);
+        }
+        processEdge(fromId, toId);
+    }
+
+    /**
+     * Forgets all interactions that have left the time window, removing the edges they verified from the verified graph
+     */
+    private void expireInteractions() {
+        long expired;
+        while ((expired = window.pollExpired()) != InteractionWindow.NONE) {
+            int fromId = InteractionWindow.getFrom(expired);
+            int toId = InteractionWindow.getTo(expired);
+            if (interactions.removeInteraction(fromId, toId)) {
+                verifiedGraph.removeEdge(fromId, toId);
+                verifiedGraph.removeEdge(toId, fromId);
+                if (metrics != null) {
+                    metrics.edgesExpired.increment();
+                }
+                edgeExpired(fromId, toId);
+            }
+        }
+    }
+
+    /**
+     * Merges a chunk parsed in parallel: maps its local IDs to node IDs and processes its edges in order
+     * @param chunk The parsed chunk
+     */
+    public void consumeChunk(ParallelIngester.Chunk chunk) {
+        numLinesRead += chunk.getNumLines();
+        if (metrics != null) {
+            metrics.linesParsed.add(chunk.getNumLines());
+            metrics.interactionsSkipped.add(chunk.getNumLines() - chunk.getNumEdges()); // the repetitions dropped by the chunk; the others are counted by updateGraphs()
+        }
+        EmailInterner chunkEmails = chunk.getEmails();
+        int[] localToNodeIds = new int[chunkEmails.size()];
+        for (int i = 0; i < localToNodeIds.length; i++) {
+            localToNodeIds[i] = emails.intern(chunkEmails, i);
+        }
+        for (int i = 0; i < chunk.getNumEdges(); i++) {
+            processEdge(localToNodeIds[chunk.getFrom(i)], localToNodeIds[chunk.getTo(i)]);
+        }
+    }
+
+    /**
+     * Records the interaction between the given nodes and notifies the subclass if a new mutual edge emerged.
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred
+     */
+    private void processEdge(int fromId, int toId) {
+        if (updateGraphs(fromId, toId)) { // add edge;  only continue processing if the graph situation has changed sufficiently
+            numEdgesVerified++;
+            if (metrics != null) {
+                metrics.edgesVerified.increment();
+            }
+            edgeVerified(fromId, toId);
+        }
+    }
+
+    /**
+     * Gets the graph whose edges are undirected and _do_ imply that the interaction was mutual
+     * @return The "verified" graph
+     */
+    protected Graph getVerifiedGraph() {
+        return verifiedGraph;
+    }
+
+    /**
+     * Gets the connected components of the verified graph. Expired edges are not taken into account, so with a window
+     * the components may be unions of actual components; clusters still never cross them.
+     * @return The connected components
+     */
+    protected ConnectedComponents getComponents() {
+        return components;
+    }
+
+    /**
+     * @return Returns whether only the interactions within a sliding time window are kept, see setWindow()
+     */
+    protected boolean isWindowed() {
+        return window != null;
+    }
+
+    /**
+     * Records the edge information; a single lookup in the reciprocity map determines whether the interaction is new, 
+     * repeated or verifies the pair, and only verified pairs are added to the verified graph. Counts the repeated interactions
+     * and the interactions with oneself if metrics are enabled; first directions are not counted, as they are needed to verify a pair.
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred
+     * @return Returns whether the graphs may have changed the cluster situation (whether the cluster finding algorithm needs to be started or not)
+     */
+    private boolean updateGraphs(int fromId, int toId) {
+        if (fromId == toId) { // interactions with oneself never contribute to a cluster
+            if (metrics != null) {
+                metrics.selfInteractions.increment();
+            }
+            return false;
+        }
+        int result = interactions.recordInteraction(fromId, toId);
+        if (result != ReciprocityMap.VERIFYING) { // first or repeated interaction
+            if (result == ReciprocityMap.REPEATED && metrics != null) {
+                metrics.interactionsSkipped.increment();
+            }
+            return false;
+        }
+        verifiedGraph.addEdge(fromId, toId);
+        verifiedGraph.addEdge(toId, fromId);
+        components.union(fromId, toId);
+        return true;
+    }
+
+    /**
+     * Determines the node id for the email address in the given byte range; either looks the existing ID up or assigns a new one.
+     * The email is only decoded into a String when printing.
+     * @param buffer The buffer containing the email address
+     * @param start The index of the first byte of the email address
+     * @param end The index after the last byte of the email address
+     * @return The node id
+     */
+    private int getNodeId(ByteBuffer buffer, int start, int end) {
+        return emails.intern(buffer, start, end);
+    }
+
+    /**
+     * Looks up the node id of the given email address without assigning one
+     * @param email The email address
+     * @return The node id, or -1 if the email address has not occurred yet
+     */
+    protected int findNodeId(String email) {
+        return emails.getId(email);
+    }
+
+    /**
+     * Prints all clusters in the required format. Together with formatCluster(), this is the only place node IDs are converted back into email addresses.
+     * @param clusters The clusters to print.
+     */
+    public void printClusters(ClusterSet clusters) {
+        List<String> allStrings = new ArrayList<String>(clusters.size());
+        for (int[] curCluster : clusters) {
+            allStrings.add(formatCluster(curCluster));
+        }
+        // sort all clusters alphabetically:
+        Collections.sort(allStrings);
+
+        // print all clusters:
+        for (String curString: allStrings) {
+            System.out.println(curString);
+        }
+    }
+
+    /**
+     * Formats a single cluster in the required format: its email addresses sorted alphabetically and separated by ", "
+     * @param cluster The cluster's node IDs
+     * @return Returns the cluster's string representation
+     */
+    public String formatCluster(int[] cluster) {
+        int idCounter = 0;
+        StringBuffer curStringBuffer = new StringBuffer();
+        // sort the email addresses within a cluster alphabetically:
+        String[] clusterEmails = new String[cluster.length];
+        for (idCounter = 0; idCounter < cluster.length; idCounter++) {
+            clusterEmails[idCounter] = emails.getEmail(cluster[idCounter]);
+        }
+        Arrays.sort(clusterEmails);
+
+        // create the entire string representation for the cluster:
+        for (idCounter = 0; idCounter < cluster.length; idCounter++) {
+            curStringBuffer.append(clusterEmails[idCounter] + (idCounter < cluster.length - 1? ", " : ""));
+        }
+        return curStringBuffer.toString();
+    }
+}
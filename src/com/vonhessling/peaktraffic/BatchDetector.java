@@ -0,0 +1,41 @@
+package com.vonhessling.peaktraffic;
+
+/**
+ * A top-down approach to finding the maximal clusters (cliques) for an entire input file.
+ * Reads all interactions and builds the complete verified graph first, then enumerates its maximal cliques once.
+ * Unlike the OnlineDetector, no neighborhood is examined more than once and no non-maximal clusters are produced,
+ * so no subset cleanup is needed. Only suitable when the whole input is available up front.
+ * @author hessling
+ */
+public class BatchDetector extends AbstractDetector {
+
+    /**
+     * Enumerates the maximal clusters of the complete verified graph component by component, in parallel if multiple threads are allowed
+     * @return Returns the maximal clusters found
+     */
+    @Override
+    protected ClusterSet collectClusters() {
+        ClusterFinder finder = new ClusterFinder(getVerifiedGraph());
+        finder.setMetrics(getMetrics());
+        finder.findAllClusters(getNumThreads(), getComponents());
+        return finder.getClusters();
+    }
+
+    /**
+     * Does nothing: the clusters are enumerated once all edges are known.
+     * @param fromId The ID of the node from which the verifying interaction occurred
+     * @param toId The ID of the node towards which the verifying interaction occurred
+     */
+    @Override
+    protected void edgeVerified(int fromId, int toId) {
+    }
+
+    /**
+     * Does nothing: the clusters are enumerated once all edges are known.
+     * @param node1 The first node of the removed edge
+     * @param node2 The second node of the removed edge
+     */
+    @Override
+    protected void edgeExpired(int node1, int node2) {
+    }
+}
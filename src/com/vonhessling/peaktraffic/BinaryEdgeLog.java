@@ -0,0 +1,258 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A compact binary form of an interaction log, for replaying the same log many times without parsing and interning it again.
+ * The file starts with a header and the email dictionary, followed by one fixed-width record per log line:
+ * <pre>
+ * int  MAGIC, int VERSION
+ * int  number of emails (n), int number of dictionary bytes
+ * int  offsets[n + 1]          start of each email in the dictionary bytes; offsets[n] is their end
+ * byte dictionary bytes        the UTF-8 emails in ID order
+ * long number of records
+ * int  from, int to, int time  per record: the IDs of sender and recipient and the seconds since the epoch (TimestampParser.INVALID if unparseable)
+ * </pre>
+ * All numbers are big-endian. IDs are dense and assigned in order of first occurrence, just like the detectors do.
+ * The records are memory-mapped when reading, so replaying is limited by I/O rather than by parsing.
+ * @author hessling
+ */
+public class BinaryEdgeLog {
+
+    public static final int MAGIC = 0x5054454c; // "PTEL"
+    public static final int VERSION = 1;
+
+    private static final int RECORD_SIZE = 12;                  // the number of bytes per record
+    private static final int RECORDS_PER_WINDOW = (1 << 28) / RECORD_SIZE; // the maximal number of records mapped at once
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Receives the contents of a binary edge log
+     */
+    public interface RecordHandler {
+        /**
+         * Called once, before any record
+         * @param dictionary The buffer containing the emails' bytes; only valid during the call
+         * @param offsets The start of each email in the dictionary; offsets[numEmails] is the end of the last email
+         * @param numEmails The number of emails
+         */
+        void handleDictionary(ByteBuffer dictionary, int[] offsets, int numEmails);
+
+        /**
+         * Called for each record, in log order
+         * @param fromId The ID of the sender, below numEmails
+         * @param toId The ID of the recipient, below numEmails
+         * @param time The seconds since the epoch, or TimestampParser.INVALID
+         */
+        void handleRecord(int fromId, int toId, int time);
+    }
+
+    private BinaryEdgeLog() {
+    }
+
+    /**
+     * Determines whether the file with the given name is a binary edge log, judging by its first bytes
+     * @param fileName The file name
+     * @return Returns whether the file starts with MAGIC
+     * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    public static boolean isBinary(String fileName) throws FileNotFoundException, IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            return file.length() >= 4 && file.readInt() == MAGIC;
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Converts a text log into a binary edge log. Lines without two tabs are skipped; all others are kept, including repetitions.
+     * @param textFileName The name of the text log to read
+     * @param binaryFileName The name of the binary edge log to write
+     * @return Returns the number of records written
+     * @throws FileNotFoundException Throws FileNotFoundException if the text log is not found.
+     * @throws IOException Throws IOException if error occurs reading or writing.
+     */
+    public static long convert(String textFileName, String binaryFileName) throws FileNotFoundException, IOException {
+        // the dictionary is only complete at the end, so the records go to a temporary file first:
+        File recordFile = new File(binaryFileName + ".records");
+        RandomAccessFile records = new RandomAccessFile(recordFile, "rw");
+        try {
+            records.setLength(0);
+            final FileChannel recordChannel = records.getChannel();
+            final EmailInterner emails = new EmailInterner();
+            final ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+            final long[] numRecords = new long[1];
+            final IOException[] failure = new IOException[1];
+            new MappedLogParser().parse(textFileName, new MappedLogParser.LineHandler() {
+                public void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd) {
+                    if (failure[0] != null) {
+                        return;
+                    }
+                    if (out.remaining() < RECORD_SIZE) {
+                        try {
+                            flush(out, recordChannel);
+                        } catch (IOException e) {
+                            failure[0] = e;
+                            return;
+                        }
+                    }
+                    out.putInt(emails.intern(buffer, fromStart, fromEnd));
+                    out.putInt(emails.intern(buffer, toStart, toEnd));
+                    out.putInt(TimestampParser.parse(buffer, dateStart, dateEnd));
+                    numRecords[0]++;
+                }
+            });
+            if (failure[0] != null) {
+                throw failure[0];
+            }
+            flush(out, recordChannel);
+
+            RandomAccessFile binary = new RandomAccessFile(binaryFileName, "rw");
+            try {
+                binary.setLength(0);
+                FileChannel channel = binary.getChannel();
+                writeHeader(channel, emails, numRecords[0], out);
+                long position = 0;
+                long size = recordChannel.size();
+                while (position < size) {
+                    position += recordChannel.transferTo(position, size - position, channel);
+                }
+            } finally {
+                binary.close();
+            }
+            return numRecords[0];
+        } finally {
+            records.close();
+            recordFile.delete();
+        }
+    }
+
+    /**
+     * Reads the binary edge log with the given name, handing its dictionary and records to the handler
+     * @param fileName The name of the binary edge log
+     * @param handler The handler
+     * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+     * @throws IOException Throws IOException if error occurs reading the file, or it is no valid binary edge log:
+     * if its header or dictionary offsets are out of range, nothing is handed to the handler. The records are only read once,
+     * so a record whose IDs are out of range is found while handling them: the records before it have been handed over already.
+     */
+    public static void read(String fileName, RecordHandler handler) throws FileNotFoundException, IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(16, channel.size()));
+            if (header.limit() < 16 || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a binary edge log: " + fileName);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unsupported binary edge log version " + header.getInt(4) + ": " + fileName);
+            }
+            int numEmails = header.getInt(8);
+            int dictionarySize = header.getInt(12);
+            long size = channel.size();
+            long position = 16;
+            if (numEmails < 0 || dictionarySize < 0) {
+                throw new IOException("Invalid binary edge log header, " + numEmails + " emails of " + dictionarySize + " bytes: " + fileName);
+            }
+            if (position + 4L * (numEmails + 1L) + dictionarySize + 8 > size) {
+                throw new IOException("Binary edge log is truncated: " + fileName);
+            }
+            int[] offsets = new int[numEmails + 1];
+            channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * offsets.length).asIntBuffer().get(offsets);
+            position += 4L * offsets.length;
+            if (offsets[0] != 0 || offsets[numEmails] != dictionarySize) {
+                throw new IOException("Invalid binary edge log dictionary, offsets do not span its " + dictionarySize + " bytes: " + fileName);
+            }
+            for (int id = 0; id < numEmails; id++) {
+                if (offsets[id] > offsets[id + 1]) {
+                    throw new IOException("Invalid binary edge log dictionary, offsets decrease at email " + id + ": " + fileName);
+                }
+            }
+            ByteBuffer dictionary = channel.map(FileChannel.MapMode.READ_ONLY, position, dictionarySize);
+            position += dictionarySize;
+            long numRecords = channel.map(FileChannel.MapMode.READ_ONLY, position, 8).getLong(0);
+            position += 8;
+            if (numRecords < 0 || numRecords > (size - position) / RECORD_SIZE) {
+                throw new IOException("Binary edge log is truncated: " + fileName);
+            }
+            handler.handleDictionary(dictionary, offsets, numEmails);
+            long record = 0;
+            while (record < numRecords) {
+                int count = (int) Math.min(RECORDS_PER_WINDOW, numRecords - record);
+                IntBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, position + record * RECORD_SIZE, (long) count * RECORD_SIZE).asIntBuffer();
+                for (int i = 0; i < 3 * count; i += 3) {
+                    int fromId = records.get(i);
+                    int toId = records.get(i + 1);
+                    if (fromId < 0 || fromId >= numEmails || toId < 0 || toId >= numEmails) {
+                        throw new IOException("Invalid binary edge log record " + (record + i / 3) + ", IDs " + fromId + " and " + toId
+                                + " not below " + numEmails + ": " + fileName);
+                    }
+                    handler.handleRecord(fromId, toId, records.get(i + 2));
+                }
+                record += count;
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Writes the header and the dictionary
+     * @param channel The channel to write to, at its current position
+     * @param emails The dictionary
+     * @param numRecords The number of records following
+     * @param buffer A buffer to use for writing
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private static void writeHeader(FileChannel channel, EmailInterner emails, long numRecords, ByteBuffer buffer) throws IOException {
+        int numEmails = emails.size();
+        int dictionarySize = 0;
+        for (int id = 0; id < numEmails; id++) {
+            dictionarySize += emails.getLength(id);
+        }
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(numEmails).putInt(dictionarySize);
+        int offset = 0;
+        for (int id = 0; id <= numEmails; id++) {
+            if (buffer.remaining() < 4) {
+                flush(buffer, channel);
+            }
+            buffer.putInt(offset);
+            if (id < numEmails) {
+                offset += emails.getLength(id);
+            }
+        }
+        for (int id = 0; id < numEmails; id++) {
+            if (buffer.remaining() < emails.getLength(id)) {
+                flush(buffer, channel);
+            }
+            emails.getBytes(id, buffer);
+        }
+        if (buffer.remaining() < 8) {
+            flush(buffer, channel);
+        }
+        buffer.putLong(numRecords);
+        flush(buffer, channel);
+    }
+
+    /**
+     * Writes the buffer's contents and clears it
+     * @param buffer The buffer
+     * @param channel The channel to write to
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private static void flush(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,38 @@
+package com.vonhessling.peaktraffic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for a subtree of the batch clique search: the search starting at a node in degeneracy order,
+ * or a branch split off into a fork/join task. Only recorded if the subtree takes at least the threshold (10 ms by default);
+ * costs nothing unless a recording enables it.
+ * @author hessling
+ */
+@Name("com.vonhessling.peaktraffic.CliqueSearch")
+@Label("Slow Clique Search")
+@Category("Peak Traffic")
+@Description("Subtree of the clique enumeration of the whole graph")
+@Threshold("10 ms")
+@StackTrace(false)
+class CliqueSearchEvent extends Event {
+
+    @Label("Start Node")
+    @Description("The first member of all cliques in the subtree")
+    int startNode;
+
+    @Label("Depth")
+    @Description("The number of members of the potential cluster the subtree starts with")
+    int depth;
+
+    @Label("Candidates")
+    int numCandidates;
+
+    @Label("Already Found")
+    int numFound;
+}
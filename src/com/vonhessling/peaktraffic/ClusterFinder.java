@@ -1,17 +1,34 @@
 package com.vonhessling.peaktraffic;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import jdk.jfr.FlightRecorder;
 
 /**
  * This class implements Bron-Kerbosch clique detection algorithm as it is
  * described in [Samudrala R.,Moult J.:A Graph-theoretic Algorithm for
  * comparative Modeling of Protein Structure; J.Mol. Biol. (1998); vol 279; pp.
- * 287-302]
+ * 287-302], with the pivot selection described in [Tomita E., Tanaka A., Takahashi H.:
+ * The worst-case time complexity for generating all maximal cliques and computational
+ * experiments; Theor. Comp. Sci. (2006); vol 363; pp. 28-42]
  * @author hessling
  */
 public class ClusterFinder
 {
+    private static final int MAX_BITSET_NODES = 1024; // the largest neighborhood for which an adjacency bit matrix is built
+    private static final int NODES_PER_TASK = 256;     // the number of start nodes a parallel task processes without splitting
+    private static final int MAX_SPLIT_DEPTH = 2;      // the number of top recursion levels split into parallel tasks
+    private static final int MIN_SPLIT_CANDIDATES = 16; // smaller recursion steps are not worth splitting
+
     private Graph g;
-    private HashSet<List<String>> clusters;
+    private ClusterSet clusters;
+    private ClusterListener listener; // notified of every change of clusters, or null
+    private ClusterIndex index;       // maps node -> clusters containing it; built when first needed and kept up to date from then on
+    private Updater updater = new DirectUpdater();
+    private ForkJoinPool pool;        // runs updateClustersEdges(), or null if not called yet
+    private DetectorMetrics metrics;  // receives what is searched and how long it takes, or null if metrics are disabled
 
     /**
      * Creates a new cluster finder for the given graph. 
@@ -19,122 +36,1123 @@ public class ClusterFinder
      */
     public ClusterFinder(Graph g)
     {
-        clusters = new HashSet<List<String>>();
+        clusters = new ClusterSet();
         this.g = g;
     }
     
     /**
-     * Given a set of nodes, adds the maximal cliques to clusters
-     * This is a "local" method because only a small part of the graph is examined for new clusters. 
-     * @param allDirectNeighbors The set of nodes which may have encountered a new cluster situation 
+     * Updates clusters after the edge between the given nodes has been added to the graph.
+     * The new maximal cliques are exactly the maximal cliques containing the edge. Every clique containing the edge consists of
+     * both nodes and common neighbors, and every node extending it is a common neighbor, too: so the search starts with
+     * both nodes as potential cluster and the common neighbors as candidates, and never explores cliques without the edge.
+     * A cluster C that is no longer maximal has become extendable by the new edge, i.e. C contains fromId and C + toId is a clique
+     * (or vice versa); the maximal clique K containing C + toId is new, and C = K - toId. So removing K - fromId and K - toId
+     * for each new maximal clique K keeps clusters equal to the maximal cliques of the graph, without any cleanup pass.
+     * @param fromId The first node of the new edge
+     * @param toId The second node of the new edge
      */
-    public void updateClustersLocal(Set<String> allDirectNeighbors)
+    public void updateClustersEdge(int fromId, int toId)
     {
-        List<String> potentialCluster = new ArrayList<String>();
-        List<String> candidates = new ArrayList<String>();
-        List<String> alreadyFound = new ArrayList<String>();
-        candidates.addAll(allDirectNeighbors);
-//TODO remove?!
-Collections.sort(candidates); // see whether the unified sorting will make processing order more predictable!?      
-        findCliques(potentialCluster, candidates, alreadyFound);
+        updater.edgeAdded(fromId, toId);
+    }
+
+    /**
+     * Updates clusters after the given edges have been added to the graph, like calling updateClustersEdge() for each one in order,
+     * but processing the edges of different connected components concurrently: cliques never cross components, so the edges
+     * of each component only depend on each other. To let every edge see the graph as it was when the edge was added, all edges
+     * are taken out of the graph first, and each task puts its edges back in order. The graph is not thread-safe: this only works
+     * because the tasks cover disjoint components, and because the edges were in the graph before, so it never grows while the
+     * tasks run (see Graph.addEdge()). Nodes outside of the graph, and a graph that grew during the update anyway, throw
+     * an IllegalStateException. The tasks only read clusters and collect their changes, which are applied on the calling
+     * thread once all tasks are done.
+     * @param edges The pairs of nodes of the new edges, in the order they were added
+     * @param numEdges The number of edges to consider
+     * @param components The connected components of the graph including the new edges
+     * @param parallelism The number of threads to use
+     */
+    public void updateClustersEdges(final int[] edges, int numEdges, ConnectedComponents components, int parallelism)
+    {
+        // sort the edges by component, keeping their order within each component:
+        long[] byComponent = new long[numEdges];
+        int nodeIdBound = g.getNodeIdBound();
+        for (int i = 0; i < numEdges; i++) {
+            if (Math.max(edges[2 * i], edges[2 * i + 1]) >= nodeIdBound) {
+                throw new IllegalStateException("Edge " + i + " was not added to the graph before updating its clusters");
+            }
+            g.removeEdge(edges[2 * i], edges[2 * i + 1]);
+            g.removeEdge(edges[2 * i + 1], edges[2 * i]);
+            byComponent[i] = ((long) components.find(edges[2 * i]) << 32) | i;
+        }
+        Arrays.sort(byComponent);
+        // split them into tasks at component boundaries:
+        final int[] order = new int[numEdges];
+        final List<ShardTask> tasks = new ArrayList<ShardTask>();
+        int edgesPerTask = Math.max(1, numEdges / (4 * parallelism));
+        int taskStart = 0;
+        for (int i = 0; i < numEdges; i++) {
+            order[i] = (int) byComponent[i];
+            boolean componentEnds = (i + 1 == numEdges) || ((byComponent[i + 1] >>> 32) != (byComponent[i] >>> 32));
+            if (componentEnds && (i + 1 - taskStart >= edgesPerTask || i + 1 == numEdges)) {
+                tasks.add(new ShardTask(edges, order, taskStart, i + 1));
+                taskStart = i + 1;
+            }
+        }
+        getPool(parallelism).invoke(new RecursiveAction() {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected void compute()
+            {
+                invokeAll(tasks);
+            }
+        });
+        if (g.getNodeIdBound() != nodeIdBound) {
+            throw new IllegalStateException("The graph grew while shards updated it concurrently");
+        }
+        for (ShardTask task : tasks) {
+            task.changes.apply();
+        }
+    }
+
+    /**
+     * @param parallelism The number of threads to use
+     * @return Returns the fork/join pool for updateClustersEdges(), creating it if this is the first call or the parallelism changed
+     */
+    private ForkJoinPool getPool(int parallelism)
+    {
+        if (pool != null && pool.getParallelism() != parallelism) {
+            shutdown();
+        }
+        if (pool == null) {
+            pool = new ForkJoinPool(parallelism);
+        }
+        return pool;
+    }
+
+    /**
+     * Stops the threads used by updateClustersEdges(), if any; a later call starts new ones
+     */
+    public void shutdown()
+    {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    /**
+     * Puts a range of edges, sorted by component, back into the graph one by one, collecting the resulting cluster changes
+     */
+    private class ShardTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] edges;
+        private final int[] order;
+        private final int from;
+        private final int to;
+        private final ShardUpdater changes = new ShardUpdater();
+
+        /**
+         * @param edges The pairs of nodes of the edges
+         * @param order The indices of the edges, sorted by component
+         * @param from The index in order of the first edge to process
+         * @param to The index in order after the last edge to process
+         */
+        ShardTask(int[] edges, int[] order, int from, int to)
+        {
+            this.edges = edges;
+            this.order = order;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            for (int i = from; i < to; i++) {
+                int fromId = edges[2 * order[i]];
+                int toId = edges[2 * order[i] + 1];
+                g.addEdge(fromId, toId);
+                g.addEdge(toId, fromId);
+                changes.edgeAdded(fromId, toId);
+            }
+        }
+    }
+
+    /**
+     * Determines how clusters change when an edge is added; subclasses decide whether the changes are applied right away.
+     */
+    private abstract class Updater
+    {
+        private int[] commonNeighbors = new int[16]; // reused buffer for the common neighbors of a new edge
+
+        /**
+         * Finds the new maximal cliques containing the given edge and the clusters they subsume, see updateClustersEdge()
+         * @param fromId The first node of the new edge
+         * @param toId The second node of the new edge
+         */
+        void edgeAdded(int fromId, int toId)
+        {
+            IntHashSet fromNeighbors = g.getDirectNeighbors(fromId); // get the direct neighbors of the "from node"
+            IntHashSet toNeighbors = g.getDirectNeighbors(toId);     // get the direct neighbors of the   "to node"
+            // we're only interested in finding clusters of MIN_CLUSTER_SIZE <==> each member needs to have at least (MIN_CLUSTER_SIZE - 1) direct neighbors
+            if (fromNeighbors.size() < AbstractDetector.MIN_CLUSTER_SIZE - 1 || toNeighbors.size() < AbstractDetector.MIN_CLUSTER_SIZE - 1) {
+                return;
+            }
+            // every new cluster contains the new edge, so its other members are in the _intersection_ between from/toNeighbors:
+            int maxSize = Math.min(fromNeighbors.size(), toNeighbors.size());
+            if (commonNeighbors.length < maxSize) {
+                commonNeighbors = new int[Math.max(maxSize, 2 * commonNeighbors.length)];
+            }
+            int numCommon = fromNeighbors.intersect(toNeighbors, commonNeighbors);
+            // a common neighbor closes a triangle with the new edge, which puts all three nodes into the 2-core, i.e. the
+            // (MIN_CLUSTER_SIZE - 1)-core the batch search prunes to (see pruneToCore()); so no core numbers are maintained online:
+            if (numCommon < AbstractDetector.MIN_CLUSTER_SIZE - 2) {
+                return;
+            }
+            long startTime = (metrics != null) ? System.nanoTime() : 0;
+            EdgeUpdateEvent event = null;
+            if (FlightRecorder.isInitialized()) { // no event objects at all unless Flight Recorder runs
+                event = new EdgeUpdateEvent();
+                event.begin();
+            }
+            List<int[]> found = findEdgeCliques(fromId, toId, commonNeighbors, numCommon);
+            int numSubsumed = 0;
+            for (int[] cluster : found) {
+                if (cluster.length > AbstractDetector.MIN_CLUSTER_SIZE) { // smaller subsets are no clusters
+                    numSubsumed += removeSubsumed(without(cluster, fromId)) ? 1 : 0;
+                    numSubsumed += removeSubsumed(without(cluster, toId)) ? 1 : 0;
+                }
+            }
+            for (int[] cluster : found) {
+                add(cluster);
+            }
+            if (event != null) {
+                commitEdgeUpdateEvent(event, fromId, toId, numCommon, found.size(), numSubsumed);
+            }
+            if (metrics != null) {
+                metrics.edgeUpdates.increment();
+                metrics.neighborhoodSizes.record(numCommon);
+                metrics.clustersSubsumed.add(numSubsumed);
+                metrics.edgeUpdateNanos.record(System.nanoTime() - startTime);
+            }
+        }
+
+        /**
+         * Removes the given clique from clusters if contained, as it is no longer maximal
+         * @param clique The clique's members in ascending order
+         * @return Returns whether the clique was contained
+         */
+        abstract boolean removeSubsumed(int[] clique);
+
+        /**
+         * Adds the given new maximal clique to clusters
+         * @param cluster The clique's members in ascending order
+         */
+        abstract void add(int[] cluster);
+    }
+
+    /**
+     * Applies the changes to clusters right away
+     */
+    private class DirectUpdater extends Updater
+    {
+        @Override
+        boolean removeSubsumed(int[] clique)
+        {
+            int[] cluster = clusters.get(clique);
+            if (cluster == null) {
+                return false;
+            }
+            removeFromClusters(cluster);
+            return true;
+        }
+
+        @Override
+        void add(int[] cluster)
+        {
+            addToClusters(cluster);
+        }
+    }
+
+    /**
+     * Collects the changes to clusters without modifying it, so several shards can run concurrently; apply() applies them.
+     */
+    private class ShardUpdater extends Updater
+    {
+        private final ClusterSet added = new ClusterSet();   // new clusters
+        private final ClusterSet removed = new ClusterSet(); // clusters no longer maximal
+
+        @Override
+        boolean removeSubsumed(int[] clique)
+        {
+            if (added.remove(clique)) {
+                return true;
+            }
+            int[] cluster = clusters.get(clique);
+            return (cluster != null) && removed.add(cluster);
+        }
+
+        @Override
+        void add(int[] cluster)
+        {
+            if (clusters.get(cluster) == null || removed.contains(cluster)) {
+                added.add(cluster);
+            }
+        }
+
+        /**
+         * Applies the collected changes to clusters
+         */
+        void apply()
+        {
+            for (int[] cluster : removed) {
+                removeFromClusters(cluster);
+            }
+            for (int[] cluster : added) {
+                addToClusters(cluster);
+            }
+        }
     }
-    
 
+    /**
+     * Finds the maximal cliques containing the edge between the given nodes
+     * @param fromId The first node of the edge
+     * @param toId The second node of the edge
+     * @param commonNeighbors The nodes connected to both fromId and toId
+     * @param numCommon The number of nodes in commonNeighbors to consider
+     * @return Returns the cliques with at least 3 members
+     */
+    private List<int[]> findEdgeCliques(int fromId, int toId, int[] commonNeighbors, int numCommon)
+    {
+        List<int[]> found = new ArrayList<int[]>();
+        int numNodes = numCommon + 2;
+        int[] nodes = new int[numNodes];
+        nodes[0] = fromId;
+        nodes[1] = toId;
+        System.arraycopy(commonNeighbors, 0, nodes, 2, numCommon);
+        if (numNodes <= Long.SIZE) {
+            long all = (numNodes == Long.SIZE) ? -1L : (1L << numNodes) - 1;
+            findCliques(nodes, buildAdjacency(nodes), 3L, all & ~3L, 0L, found);
+        } else if (numNodes <= MAX_BITSET_NODES) {
+            long[][] adjacency = buildAdjacencyWords(nodes);
+            long[] candidates = new long[adjacency[0].length];
+            for (int i = 2; i < numNodes; i++) {
+                candidates[i >>> 6] |= 1L << i;
+            }
+            int[] potentialCluster = new int[numNodes];
+            potentialCluster[1] = 1;
+            findCliques(nodes, adjacency, potentialCluster, 2, candidates, new long[candidates.length], found);
+        } else {
+            int[] potentialCluster = new int[numNodes];
+            potentialCluster[0] = fromId;
+            potentialCluster[1] = toId;
+            findCliques(potentialCluster, 2, Arrays.copyOf(commonNeighbors, numCommon), numCommon, new int[0], 0, found);
+        }
+        return found;
+    }
 
     /**
-     * Recursively finds all maximal cliques using the Bron-Kerbosch algorithm.
+     * Builds the adjacency bit matrix of the subgraph induced by the given (at most 64) nodes.
+     * The nodes are relabeled by their index, so bit j of row i is set if nodes[i] and nodes[j] are connected.
+     * @param nodes The nodes of the subgraph
+     * @return Returns one row per node
+     */
+    private long[] buildAdjacency(int[] nodes)
+    {
+        long[] adjacency = new long[nodes.length];
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = i + 1; j < nodes.length; j++) {
+                if (g.containsEdge(nodes[i], nodes[j])) {
+                    adjacency[i] |= 1L << j;
+                    adjacency[j] |= 1L << i;
+                }
+            }
+        }
+        return adjacency;
+    }
+
+    /**
+     * Builds the adjacency bit matrix of the subgraph induced by the given nodes, using as many 64 bit words per row as needed.
+     * @param nodes The nodes of the subgraph
+     * @return Returns one row of words per node
+     */
+    private long[][] buildAdjacencyWords(int[] nodes)
+    {
+        int numWords = (nodes.length + Long.SIZE - 1) / Long.SIZE;
+        long[][] adjacency = new long[nodes.length][numWords];
+        for (int i = 0; i < nodes.length; i++) {
+            for (int j = i + 1; j < nodes.length; j++) {
+                if (g.containsEdge(nodes[i], nodes[j])) {
+                    adjacency[i][j >>> 6] |= 1L << j;
+                    adjacency[j][i >>> 6] |= 1L << i;
+                }
+            }
+        }
+        return adjacency;
+    }
+
+    /**
+     * Recursively finds all maximal cliques of a neighborhood of at most 64 nodes; works like the int based findCliques,
+     * but each set of nodes is a single bit mask, so intersecting sets is a single AND and counting them a single popcount.
+     * @param nodes The nodes of the neighborhood; bit i stands for nodes[i]
+     * @param adjacency The adjacency bit matrix of the neighborhood
      * @param potentialCluster The potential cluster at this recursion step
      * @param candidates The candidate nodes which may be added to this cluster
      * @param alreadyFound The nodes which have been proven to lead to a valid extension of the current cluster
+     * @param result The collection receiving the clusters
      */
-    private void findCliques(List<String> potentialCluster, List<String> candidates, List<String> alreadyFound) {
-        List<String> candidatesCopy = new ArrayList<String>(candidates);
-        if (!endReached(candidates, alreadyFound)) {
-            for (String candidate : candidatesCopy) { // loop over all candidates...
-                List<String> newCandidates = new ArrayList<String>();
-                List<String> newAlreadyFound = new ArrayList<String>();
-
-                // move candidate node to potentialCluster:
-                potentialCluster.add(candidate);
-                candidates.remove(candidate);
-                // create newCandidates by removing nodes in candidates not connected to candidate node:
-                for (String newCandidate : candidates) {
-                    if (g.containsEdge(candidate, newCandidate)) {
-                        newCandidates.add(newCandidate);
-                    } 
-                } 
-
-                // create newAlreadyFound by removing nodes in alreadyFound that are not connected to candidate node:
-                for (String newFound : alreadyFound) {
-                    if (g.containsEdge(candidate, newFound)) {
-                        newAlreadyFound.add(newFound);
-                    } 
-                } 
-
-                // if newCandidates and newAlreadyFound are empty...
-                if (newCandidates.isEmpty() && newAlreadyFound.isEmpty()) {
-                    // potentialCluster is a maximal cluster
-// TODO remove condition?: register clusters of at least 3 members: 
-if (potentialCluster.size() >= 3) {
-clusters.add(new ArrayList<String>(potentialCluster));
-}
-                } else {
-                    findCliques(potentialCluster, newCandidates, newAlreadyFound); // call recursively
-                } 
-                // move candidate from potentialCluster to alreadyFound;
-                alreadyFound.add(candidate);
-                potentialCluster.remove(candidate);
-            } // end loop over all candidates
-        } // end if end reached 
+    private void findCliques(int[] nodes, long[] adjacency, long potentialCluster, long candidates, long alreadyFound, Collection<int[]> result)
+    {
+        if (metrics != null) {
+            metrics.cliqueSearchSteps.increment();
+        }
+        if (candidates == 0) {
+            if (alreadyFound == 0) { // potentialCluster is a maximal cluster
+                int[] members = new int[Long.bitCount(potentialCluster)];
+                int i = 0;
+                for (long rest = potentialCluster; rest != 0; rest &= rest - 1) {
+                    members[i++] = nodes[Long.numberOfTrailingZeros(rest)];
+                }
+                addCluster(members, members.length, result);
+            }
+            return;
+        }
+        // choose the pivot with the most neighbors among the candidates:
+        int pivot = -1;
+        int maxEdges = -1;
+        for (long rest = candidates | alreadyFound; rest != 0; rest &= rest - 1) {
+            int node = Long.numberOfTrailingZeros(rest);
+            int edgeCounter = Long.bitCount(candidates & adjacency[node]);
+            if (edgeCounter > maxEdges) {
+                maxEdges = edgeCounter;
+                pivot = node;
+            }
+        }
+        // branch on all candidates not connected to the pivot:
+        for (long branches = candidates & ~adjacency[pivot]; branches != 0; branches &= branches - 1) {
+            int candidate = Long.numberOfTrailingZeros(branches);
+            long bit = 1L << candidate;
+            findCliques(nodes, adjacency, potentialCluster | bit, candidates & adjacency[candidate], alreadyFound & adjacency[candidate], result);
+            // move candidate from potentialCluster to alreadyFound:
+            candidates &= ~bit;
+            alreadyFound |= bit;
+        }
+    }
+
+    /**
+     * Recursively finds all maximal cliques of a neighborhood of more than 64 nodes; each set of nodes is an array of bit words.
+     * @param nodes The nodes of the neighborhood; bit i stands for nodes[i]
+     * @param adjacency The adjacency bit matrix of the neighborhood
+     * @param potentialCluster The potential cluster at this recursion step, as indices into nodes; its first clusterSize elements are used
+     * @param clusterSize The size of the potential cluster
+     * @param candidates The candidate nodes which may be added to this cluster; modified by this method
+     * @param alreadyFound The nodes which have been proven to lead to a valid extension of the current cluster; modified by this method
+     * @param result The collection receiving the clusters
+     */
+    private void findCliques(int[] nodes, long[][] adjacency, int[] potentialCluster, int clusterSize, long[] candidates, long[] alreadyFound, Collection<int[]> result)
+    {
+        if (metrics != null) {
+            metrics.cliqueSearchSteps.increment();
+        }
+        int numWords = candidates.length;
+        if (isEmpty(candidates)) {
+            if (isEmpty(alreadyFound)) { // potentialCluster is a maximal cluster
+                int[] members = new int[clusterSize];
+                for (int i = 0; i < clusterSize; i++) {
+                    members[i] = nodes[potentialCluster[i]];
+                }
+                addCluster(members, clusterSize, result);
+            }
+            return;
+        }
+        // choose the pivot with the most neighbors among the candidates:
+        int pivot = -1;
+        int maxEdges = -1;
+        for (int w = 0; w < numWords; w++) {
+            for (long rest = candidates[w] | alreadyFound[w]; rest != 0; rest &= rest - 1) {
+                int node = (w << 6) + Long.numberOfTrailingZeros(rest);
+                int edgeCounter = 0;
+                for (int v = 0; v < numWords; v++) {
+                    edgeCounter += Long.bitCount(candidates[v] & adjacency[node][v]);
+                }
+                if (edgeCounter > maxEdges) {
+                    maxEdges = edgeCounter;
+                    pivot = node;
+                }
+            }
+        }
+        // branch on all candidates not connected to the pivot:
+        long[] branches = new long[numWords];
+        for (int w = 0; w < numWords; w++) {
+            branches[w] = candidates[w] & ~adjacency[pivot][w];
+        }
+        for (int w = 0; w < numWords; w++) {
+            for (long rest = branches[w]; rest != 0; rest &= rest - 1) {
+                int candidate = (w << 6) + Long.numberOfTrailingZeros(rest);
+                long[] newCandidates = new long[numWords];
+                long[] newAlreadyFound = new long[numWords];
+                for (int v = 0; v < numWords; v++) {
+                    newCandidates[v] = candidates[v] & adjacency[candidate][v];
+                    newAlreadyFound[v] = alreadyFound[v] & adjacency[candidate][v];
+                }
+                potentialCluster[clusterSize] = candidate;
+                findCliques(nodes, adjacency, potentialCluster, clusterSize + 1, newCandidates, newAlreadyFound, result);
+                // move candidate from potentialCluster to alreadyFound:
+                candidates[w] &= ~(1L << candidate);
+                alreadyFound[w] |= 1L << candidate;
+            }
+        }
+    }
+
+    /**
+     * @param words A set of nodes as bit words
+     * @return Returns whether no bit is set
+     */
+    private static boolean isEmpty(long[] words)
+    {
+        for (long word : words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+
+
+    /**
+     * Adds all maximal cliques of the entire graph to clusters; each one is found exactly once.
+     * Follows [Eppstein D., Loeffler M., Strash D.: Listing All Maximal Cliques in Sparse Graphs in Near-optimal Time; (2010)]:
+     * the nodes are processed in degeneracy order, and every node starts one pivoted search whose candidates are its neighbors 
+     * later in the order; the earlier neighbors are already found (the cliques containing them have been enumerated before).
+     * As each node has at most d later neighbors, the running time is O(d * n * 3^(d/3)) for a graph of degeneracy d,
+     * no matter how large the maximum degree is.
+     */
+    public void findAllClusters()
+    {
+        findAllClusters(1);
+    }
+
+    /**
+     * Adds all maximal cliques of the entire graph to clusters like findAllClusters(), using the given number of threads.
+     * The nodes are split into ranges, and the top levels of large searches are split into one task per branch;
+     * all tasks run on a fork/join pool whose work stealing balances the very differently sized subtrees.
+     * @param parallelism The number of threads to use; 1 runs on the calling thread
+     */
+    public void findAllClusters(int parallelism)
+    {
+        DegeneracyOrdering ordering = new DegeneracyOrdering(g);
+        findAllClusters(parallelism, ordering, ordering.getOrder());
+    }
+
+    /**
+     * Adds all maximal cliques of the entire graph to clusters like findAllClusters(int), processing one connected component
+     * after another: the nodes are grouped by component, keeping the degeneracy order within each one, so each task's range
+     * of nodes spans as few components as possible, and components too small to hold a cluster are skipped altogether.
+     * @param parallelism The number of threads to use; 1 runs on the calling thread
+     * @param components The connected components of the graph
+     */
+    public void findAllClusters(int parallelism, ConnectedComponents components)
+    {
+        DegeneracyOrdering ordering = new DegeneracyOrdering(g);
+        int[] order = ordering.getOrder();
+        // counting sort of the nodes by the root of their component; stable, so the degeneracy order is kept within components
+        int numNodes = 0;
+        int[] starts = new int[order.length + 1];
+        for (int node : order) {
+            if (components.getSize(node) >= AbstractDetector.MIN_CLUSTER_SIZE) {
+                starts[components.find(node) + 1]++;
+                numNodes++;
+            }
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        int[] nodes = new int[numNodes];
+        for (int node : order) {
+            if (components.getSize(node) >= AbstractDetector.MIN_CLUSTER_SIZE) {
+                nodes[starts[components.find(node)]++] = node;
+            }
+        }
+        findAllClusters(parallelism, ordering, nodes);
+    }
+
+    /**
+     * Adds the maximal cliques starting at the given nodes to clusters
+     * @param parallelism The number of threads to use; 1 runs on the calling thread
+     * @param ordering The degeneracy ordering of the graph
+     * @param nodes The nodes to start from
+     */
+    private void findAllClusters(int parallelism, DegeneracyOrdering ordering, int[] nodes)
+    {
+        nodes = pruneToCore(ordering, nodes);
+        if (parallelism <= 1) {
+            for (int node : nodes) {
+                findCliquesFrom(node, ordering, clusters, false);
+            }
+            return;
+        }
+        ConcurrentLinkedQueue<int[]> result = new ConcurrentLinkedQueue<int[]>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new NodeRangeTask(ordering, nodes, 0, nodes.length, result));
+        } finally {
+            pool.shutdown();
+        }
+        for (int[] cluster : result) {
+            addToClusters(cluster);
+        }
+    }
+
+    /**
+     * Strips the nodes that cannot be part of a cluster: every member of a cluster of k members has k - 1 neighbors within it,
+     * so it belongs to the (k - 1)-core of the graph. The core numbers come with the degeneracy ordering at no extra cost.
+     * No maximal clique of at least k members is lost, and none becomes maximal: a node extending such a clique would be
+     * a member of a larger one, so it is in the core as well.
+     * @param ordering The degeneracy ordering of the graph
+     * @param nodes The nodes to start from
+     * @return Returns the given nodes within the (MIN_CLUSTER_SIZE - 1)-core, in the same order
+     */
+    private static int[] pruneToCore(DegeneracyOrdering ordering, int[] nodes)
+    {
+        int numNodes = 0;
+        int[] result = new int[nodes.length];
+        for (int node : nodes) {
+            if (isInCore(ordering, node)) {
+                result[numNodes++] = node;
+            }
+        }
+        return (numNodes == nodes.length) ? nodes : Arrays.copyOf(result, numNodes);
+    }
+
+    /**
+     * @param ordering The degeneracy ordering of the graph
+     * @param node The node
+     * @return Returns whether the node belongs to the (MIN_CLUSTER_SIZE - 1)-core, i.e. may be part of a cluster
+     */
+    private static boolean isInCore(DegeneracyOrdering ordering, int node)
+    {
+        return ordering.getCoreNumber(node) >= AbstractDetector.MIN_CLUSTER_SIZE - 1;
+    }
+
+    /**
+     * Finds all maximal cliques whose first member in degeneracy order is the given node.
+     * The node's neighbors later in the order are the candidates, the earlier ones are already found.
+     * @param node The node to start from
+     * @param ordering The degeneracy ordering of the graph
+     * @param result The collection receiving the clusters
+     * @param parallel Whether to split the search into fork/join tasks; only allowed when running on a fork/join pool
+     */
+    private void findCliquesFrom(int node, DegeneracyOrdering ordering, Collection<int[]> result, boolean parallel)
+    {
+        int[] neighbors = g.getDirectNeighbors(node).toArray();
+        // drop the neighbors outside the core, see pruneToCore():
+        int numNeighbors = 0;
+        for (int neighbor : neighbors) {
+            if (isInCore(ordering, neighbor)) {
+                neighbors[numNeighbors++] = neighbor;
+            }
+        }
+        if (numNeighbors < 2) { // no cluster of at least 3 members possible
+            return;
+        }
+        // split the neighbors: the ones earlier in the order are moved to the front, the later ones (candidates) to the back
+        int position = ordering.getPosition(node);
+        int numFound = 0;
+        for (int i = 0; i < numNeighbors; i++) {
+            if (ordering.getPosition(neighbors[i]) < position) {
+                int neighbor = neighbors[i];
+                neighbors[i] = neighbors[numFound];
+                neighbors[numFound++] = neighbor;
+            }
+        }
+        int numCandidates = numNeighbors - numFound;
+        if (numCandidates == 0) {
+            return;
+        }
+        int[] potentialCluster = new int[numCandidates + 1];
+        potentialCluster[0] = node;
+        int[] candidates = Arrays.copyOfRange(neighbors, numFound, numNeighbors);
+        CliqueSearchEvent event = beginSearchEvent();
+        if (parallel) {
+            new CliqueTask(potentialCluster, 1, candidates, numCandidates, neighbors, numFound, 0, result).invoke();
+        } else {
+            findCliques(potentialCluster, 1, candidates, numCandidates, neighbors, numFound, result);
+        }
+        commitSearchEvent(event, node, 1, numCandidates, numFound);
+    }
+
+    /**
+     * Ends the given event for a new edge, and commits it if it took long enough and is enabled
+     * @param event The event, begun when the search started
+     * @param fromId The first node of the new edge
+     * @param toId The second node of the new edge
+     * @param numCommon The number of common neighbors searched
+     * @param numFound The number of maximal cliques found
+     * @param numSubsumed The number of clusters removed because they are no longer maximal
+     */
+    private static void commitEdgeUpdateEvent(EdgeUpdateEvent event, int fromId, int toId, int numCommon, int numFound, int numSubsumed)
+    {
+        event.end();
+        if (event.shouldCommit()) {
+            event.fromId = fromId;
+            event.toId = toId;
+            event.neighborhoodSize = numCommon;
+            event.cliquesFound = numFound;
+            event.clustersSubsumed = numSubsumed;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return Returns a begun event for a subtree of the clique search, or null if Flight Recorder does not run
+     */
+    private static CliqueSearchEvent beginSearchEvent()
+    {
+        if (!FlightRecorder.isInitialized()) {
+            return null;
+        }
+        CliqueSearchEvent event = new CliqueSearchEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the given event for a subtree of the clique search, and commits it if it took long enough and is enabled
+     * @param event The event returned by beginSearchEvent(), or null
+     * @param startNode The first member of the potential cluster
+     * @param depth The size of the potential cluster
+     * @param numCandidates The number of candidates
+     * @param numFound The number of nodes already found
+     */
+    private static void commitSearchEvent(CliqueSearchEvent event, int startNode, int depth, int numCandidates, int numFound)
+    {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.startNode = startNode;
+            event.depth = depth;
+            event.numCandidates = numCandidates;
+            event.numFound = numFound;
+            event.commit();
+        }
+    }
+
+    /**
+     * Runs the searches of a range of nodes, splitting the range in halves until it is small.
+     */
+    private class NodeRangeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final DegeneracyOrdering ordering;
+        private final int[] nodes;
+        private final int from;
+        private final int to;
+        private final Collection<int[]> result;
+
+        /**
+         * @param ordering The degeneracy ordering of the graph
+         * @param nodes The nodes to start from
+         * @param from The index in nodes of the first node to process
+         * @param to The index after the last node to process
+         * @param result The collection receiving the clusters; needs to be thread-safe
+         */
+        NodeRangeTask(DegeneracyOrdering ordering, int[] nodes, int from, int to, Collection<int[]> result)
+        {
+            this.ordering = ordering;
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from > NODES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new NodeRangeTask(ordering, nodes, from, middle, result), new NodeRangeTask(ordering, nodes, middle, to, result));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                findCliquesFrom(nodes[i], ordering, result, true);
+            }
+        }
+    }
+
+    /**
+     * Runs one recursion step of findCliques. Large steps near the top of the recursion tree are split into one subtask per branch,
+     * everything else runs sequentially.
+     */
+    private class CliqueTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] potentialCluster;
+        private final int clusterSize;
+        private final int[] candidates;
+        private final int numCandidates;
+        private final int[] alreadyFound;
+        private final int numFound;
+        private final int depth;
+        private final Collection<int[]> result;
+
+        /**
+         * @param potentialCluster The potential cluster; owned by this task and large enough for all candidates to be added
+         * @param clusterSize The size of the potential cluster
+         * @param candidates The candidate nodes which may be added to this cluster
+         * @param numCandidates The number of candidate nodes
+         * @param alreadyFound The nodes which have been proven to lead to a valid extension of the current cluster
+         * @param numFound The number of nodes in alreadyFound
+         * @param depth The number of split recursion levels above this task
+         * @param result The collection receiving the clusters; needs to be thread-safe
+         */
+        CliqueTask(int[] potentialCluster, int clusterSize, int[] candidates, int numCandidates, int[] alreadyFound, int numFound, int depth, Collection<int[]> result)
+        {
+            this.potentialCluster = potentialCluster;
+            this.clusterSize = clusterSize;
+            this.candidates = candidates;
+            this.numCandidates = numCandidates;
+            this.alreadyFound = alreadyFound;
+            this.numFound = numFound;
+            this.depth = depth;
+            this.result = result;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (depth == 0) { // the subtree at depth 0 is reported by findCliquesFrom()
+                search();
+                return;
+            }
+            CliqueSearchEvent event = beginSearchEvent();
+            search();
+            commitSearchEvent(event, potentialCluster[0], clusterSize, numCandidates, numFound);
+        }
+
+        /**
+         * Runs the recursion step, splitting it into subtasks if large
+         */
+        private void search()
+        {
+            if (depth >= MAX_SPLIT_DEPTH || numCandidates < MIN_SPLIT_CANDIDATES) {
+                findCliques(potentialCluster, clusterSize, candidates, numCandidates, alreadyFound, numFound, result);
+                return;
+            }
+            // same as findCliques, but creating a subtask instead of recursing:
+            if (metrics != null) {
+                metrics.cliqueSearchSteps.increment();
+            }
+            List<CliqueTask> subtasks = new ArrayList<CliqueTask>();
+            int pivot = choosePivot(candidates, numCandidates, alreadyFound, numFound);
+            int[] found = Arrays.copyOf(alreadyFound, numFound + numCandidates);
+            int numFoundSoFar = numFound;
+            boolean[] processed = new boolean[numCandidates];
+            for (int i = 0; i < numCandidates; i++) {
+                int candidate = candidates[i];
+                if (g.containsEdge(pivot, candidate)) {
+                    continue;
+                }
+                processed[i] = true;
+                int[] newCandidates = new int[numCandidates - 1];
+                int numNewCandidates = selectNeighbors(candidate, candidates, numCandidates, processed, newCandidates);
+                int[] newAlreadyFound = new int[numFoundSoFar];
+                int numNewFound = selectNeighbors(candidate, found, numFoundSoFar, null, newAlreadyFound);
+                int[] newPotentialCluster = Arrays.copyOf(potentialCluster, potentialCluster.length);
+                newPotentialCluster[clusterSize] = candidate;
+                subtasks.add(new CliqueTask(newPotentialCluster, clusterSize + 1, newCandidates, numNewCandidates, newAlreadyFound, numNewFound, depth + 1, result));
+                found[numFoundSoFar++] = candidate;
+            }
+            invokeAll(subtasks);
+        }
+    }
+
+    /**
+     * Recursively finds all maximal cliques using the Bron-Kerbosch algorithm with Tomita pivoting:
+     * a pivot node u is chosen from candidates and alreadyFound such that u has as many neighbors among the candidates as possible.
+     * Every maximal clique extending the potential cluster either contains a non-neighbor of u or u itself, so only those candidates
+     * need to be branched on. This bounds the running time by O(3^(n/3)) for n nodes.
+     * @param potentialCluster The potential cluster at this recursion step; its first clusterSize elements are used
+     * @param clusterSize The size of the potential cluster
+     * @param candidates The candidate nodes which may be added to this cluster
+     * @param numCandidates The number of candidate nodes
+     * @param alreadyFound The nodes which have been proven to lead to a valid extension of the current cluster
+     * @param numFound The number of nodes in alreadyFound
+     * @param result The collection receiving the clusters
+     */
+    private void findCliques(int[] potentialCluster, int clusterSize, int[] candidates, int numCandidates, int[] alreadyFound, int numFound, Collection<int[]> result) {
+        if (metrics != null) {
+            metrics.cliqueSearchSteps.increment();
+        }
+        if (numCandidates == 0) {
+            if (numFound == 0) { // potentialCluster is a maximal cluster
+                addCluster(potentialCluster, clusterSize, result);
+            }
+            return;
+        }
+        int pivot = choosePivot(candidates, numCandidates, alreadyFound, numFound);
+        // the nodes in alreadyFound plus the candidates processed so far:
+        int[] found = Arrays.copyOf(alreadyFound, numFound + numCandidates);
+        boolean[] processed = new boolean[numCandidates];
+        for (int i = 0; i < numCandidates; i++) { // loop over all candidates not connected to the pivot...
+            int candidate = candidates[i];
+            if (g.containsEdge(pivot, candidate)) {
+                continue;
+            }
+            // move candidate node to potentialCluster:
+            potentialCluster[clusterSize] = candidate;
+            processed[i] = true;
+            // create newCandidates by removing nodes in candidates not connected to candidate node:
+            int[] newCandidates = new int[numCandidates - 1];
+            int numNewCandidates = selectNeighbors(candidate, candidates, numCandidates, processed, newCandidates);
+            // create newAlreadyFound by removing nodes in alreadyFound that are not connected to candidate node:
+            int[] newAlreadyFound = new int[numFound];
+            int numNewFound = selectNeighbors(candidate, found, numFound, null, newAlreadyFound);
+
+            findCliques(potentialCluster, clusterSize + 1, newCandidates, numNewCandidates, newAlreadyFound, numNewFound, result); // call recursively
+            // move candidate from potentialCluster to alreadyFound:
+            found[numFound++] = candidate;
+        } // end loop over all candidates
     }
 
     /**
-     * Determines whether the termination criterion has been fulfilled for the Bron-Kerbosch algorithm
+     * Copies the given nodes that are connected to the given node
+     * @param node The node whose neighbors to select
+     * @param nodes The nodes to select from
+     * @param numNodes The number of nodes to select from
+     * @param skip Marks the nodes to leave out regardless of their connection, or null
+     * @param neighbors The array receiving the selected nodes
+     * @return Returns the number of selected nodes
+     */
+    private int selectNeighbors(int node, int[] nodes, int numNodes, boolean[] skip, int[] neighbors)
+    {
+        int numNeighbors = 0;
+        for (int j = 0; j < numNodes; j++) {
+            if ((skip == null || !skip[j]) && g.containsEdge(node, nodes[j])) {
+                neighbors[numNeighbors++] = nodes[j];
+            }
+        }
+        return numNeighbors;
+    }
+
+    /**
+     * Chooses the node among candidates and alreadyFound with the most neighbors among the candidates
      * @param candidates The candidate nodes
+     * @param numCandidates The number of candidate nodes; needs to be positive
      * @param alreadyFound The set of nodes which have been proven to lead to a valid extension of the current cluster
-     * @return Returns whether the termination criterion has been fulfilled.
+     * @param numFound The number of nodes in alreadyFound
+     * @return Returns the pivot node
      */
-    private boolean endReached(List<String> candidates, List<String> alreadyFound)
+    private int choosePivot(int[] candidates, int numCandidates, int[] alreadyFound, int numFound)
     {
-        boolean end = false;
-        int edgeCounter;
-        // if a node in alreadyFound is connected to all nodes in candidates...
-        for (String found : alreadyFound) {
-            edgeCounter = 0;
-            for (String candidate : candidates) {
-                if (g.containsEdge(found, candidate)) {
+        int pivot = candidates[0];
+        int maxEdges = -1;
+        for (int i = 0; i < numFound + numCandidates; i++) {
+            int node = (i < numFound) ? alreadyFound[i] : candidates[i - numFound];
+            int edgeCounter = 0;
+            for (int j = 0; j < numCandidates; j++) {
+                if (g.containsEdge(node, candidates[j])) {
                     edgeCounter++;
                 }
             }
-            if (edgeCounter == candidates.size()) {
-                end = true;
+            if (edgeCounter > maxEdges) {
+                maxEdges = edgeCounter;
+                pivot = node;
+                if (maxEdges == numCandidates) { // connected to all candidates: no better pivot possible
+                    break;
+                }
             }
         }
-        return end;
+        return pivot;
     }
 
     /**
-     * Removes subsets of valid maximal clusters.  Uses Algorithm-T to produce these subsets with high speed. 
+     * Registers the given maximal clique as cluster if it has at least 3 members
+     * @param potentialCluster The clique; its first clusterSize elements are used
+     * @param clusterSize The size of the clique
+     * @param result The collection receiving the cluster
      */
-    public void cleanSubsetClusters() {
-        List<List<String>> allCombinations;
-        List<List<String>> toRemove = new ArrayList<List<String>>();
-        for (List<String> curCluster : clusters) {
-            allCombinations = Utils.getAllCombinations(3, curCluster.size() - 1, curCluster);
-            for (List<String> curCombination : allCombinations) {
-                if (clusters.contains(curCombination)) {
-                    toRemove.add(curCombination);
-                }
+    private void addCluster(int[] potentialCluster, int clusterSize, Collection<int[]> result)
+    {
+        if (clusterSize < 3) {
+            return;
+        }
+        // the members are stored in ascending order, so equal clusters are equal arrays:
+        int[] cluster = Arrays.copyOf(potentialCluster, clusterSize);
+        Arrays.sort(cluster);
+        if (result == clusters) {
+            addToClusters(cluster);
+        } else {
+            result.add(cluster);
+        }
+    }
+
+    /**
+     * Adds the given cluster to clusters and notifies the listener if it was not contained yet
+     * @param cluster The cluster's members in ascending order
+     */
+    private void addToClusters(int[] cluster)
+    {
+        if (!clusters.add(cluster)) {
+            return;
+        }
+        if (index != null) {
+            index.add(cluster);
+        }
+        if (listener != null) {
+            listener.clusterAdded(cluster);
+        }
+    }
+
+    /**
+     * Removes the given cluster from clusters and notifies the listener
+     * @param cluster The very cluster (the same array) contained in clusters
+     */
+    private void removeFromClusters(int[] cluster)
+    {
+        clusters.remove(cluster);
+        if (index != null) {
+            index.remove(cluster);
+        }
+        if (listener != null) {
+            listener.clusterRemoved(cluster);
+        }
+    }
+
+    /**
+     * @return Returns the inverted index of clusters, building it if this is the first time it is needed
+     */
+    private ClusterIndex getIndex()
+    {
+        if (index == null) {
+            index = new ClusterIndex(clusters);
+        }
+        return index;
+    }
+
+    /**
+     * Updates clusters after the edge between the given nodes has been removed from the graph:
+     * the clusters containing both nodes are no longer cliques and are removed. If such a cluster C was maximal, 
+     * any new maximal clique is C without node1 or C without node2, and it is maximal unless contained in another cluster
+     * (a node extending it would not be connected to the node left out, so the extended clique was a cluster before).
+     * So clusters keeps containing all maximal cliques of the graph, without enumerating anything.
+     * @param node1 The first node of the removed edge
+     * @param node2 The second node of the removed edge
+     */
+    public void updateClustersRemoved(int node1, int node2)
+    {
+        long startTime = (metrics != null) ? System.nanoTime() : 0;
+        InvalidationEvent event = null;
+        if (FlightRecorder.isInitialized()) { // no event objects at all unless Flight Recorder runs
+            event = new InvalidationEvent();
+            event.begin();
+        }
+        ClusterIndex index = getIndex();
+        List<int[]> node1Clusters = index.getClusters(node1);
+        List<int[]> node2Clusters = index.getClusters(node2);
+        int other = node2;
+        if (node2Clusters.size() < node1Clusters.size()) {
+            node1Clusters = node2Clusters;
+            other = node1;
+        }
+        List<int[]> invalid = new ArrayList<int[]>();
+        for (int[] cluster : node1Clusters) {
+            if (Arrays.binarySearch(cluster, other) >= 0) {
+                invalid.add(cluster);
+            }
+        }
+        for (int[] cluster : invalid) {
+            removeFromClusters(cluster);
+        }
+        int numAdded = 0;
+        for (int[] cluster : invalid) {
+            if (cluster.length > AbstractDetector.MIN_CLUSTER_SIZE) { // smaller subsets are no clusters
+                numAdded += addIfNotSubset(without(cluster, node1)) ? 1 : 0;
+                numAdded += addIfNotSubset(without(cluster, node2)) ? 1 : 0;
+            }
+        }
+        if (event != null) {
+            event.end();
+            if (event.shouldCommit()) {
+                event.node1 = node1;
+                event.node2 = node2;
+                event.clustersRemoved = invalid.size();
+                event.clustersAdded = numAdded;
+                event.commit();
+            }
+        }
+        if (metrics != null) {
+            metrics.invalidationNanos.record(System.nanoTime() - startTime);
+        }
+    }
+
+    /**
+     * Adds the given clique to clusters unless it is a strict subset of a cluster
+     * @param cluster The clique's members in ascending order
+     * @return Returns whether the clique was added
+     */
+    private boolean addIfNotSubset(int[] cluster)
+    {
+        if (getIndex().isStrictSubset(cluster)) {
+            return false;
+        }
+        addToClusters(cluster);
+        return true;
+    }
+
+    /**
+     * @param cluster The cluster's members in ascending order
+     * @param node A member of the cluster
+     * @return Returns a new array with the cluster's members except for the given node, in ascending order
+     */
+    private static int[] without(int[] cluster, int node)
+    {
+        int[] result = new int[cluster.length - 1];
+        int j = 0;
+        for (int member : cluster) {
+            if (member != node) {
+                result[j++] = member;
             }
-        }            
-        clusters.removeAll(toRemove);
+        }
+        return result;
+    }
+
+    /**
+     * Sets the listener notified whenever a cluster is added to or removed from clusters
+     * @param listener The listener, or null for none
+     */
+    public void setListener(ClusterListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param metrics The metrics to update while searching, or null to disable metrics
+     */
+    public void setMetrics(DetectorMetrics metrics) {
+        this.metrics = metrics;
     }
  
     /**
-     * Call cleanSubsetClusters() first if you need to eliminate subsets of valid maximal clusters
-     * @return Returns the clusters that have been found so far; may contain subsets of valid maximal clusters!
+     * Looks up the clusters containing the given node in the inverted index, which is built on the first call
+     * and kept up to date from then on
+     * @param node The node
+     * @return Returns the clusters containing the node, or an empty list if none; must not be modified
+     */
+    public List<int[]> getClusters(int node)
+    {
+        return getIndex().getClusters(node);
+    }
+
+    /**
+     * @return Returns the clusters, which are the maximal cliques (with at least 3 members) of the graph as of the latest update
      */
-    public HashSet<List<String>> getClusters() {
+    public ClusterSet getClusters() {
         return clusters;
     }
 }
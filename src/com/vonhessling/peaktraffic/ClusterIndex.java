@@ -0,0 +1,128 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An inverted index from node IDs to the clusters containing them.
+ * Finding the clusters a given cluster is a subset of only requires looking at the clusters of one of its members,
+ * namely the member appearing in the fewest clusters. As node IDs are dense, the lists are indexed by node ID directly,
+ * so neither a node ID is boxed nor a hash computed per lookup.
+ * @author hessling
+ */
+public class ClusterIndex {
+
+    private List<List<int[]>> nodeToClusters = new ArrayList<List<int[]>>(); // maps node ID -> its clusters, or null if none
+
+    /**
+     * Creates an index of the given clusters
+     * @param clusters The clusters to index; each one's members need to be in ascending order
+     */
+    public ClusterIndex(Collection<int[]> clusters) {
+        for (int[] cluster : clusters) {
+            add(cluster);
+        }
+    }
+
+    /**
+     * Adds the given cluster to the index
+     * @param cluster The cluster; its members need to be in ascending order
+     */
+    public void add(int[] cluster) {
+        for (int node : cluster) {
+            while (nodeToClusters.size() <= node) {
+                nodeToClusters.add(null);
+            }
+            List<int[]> nodeClusters = nodeToClusters.get(node);
+            if (nodeClusters == null) {
+                nodeClusters = new ArrayList<int[]>(2);
+                nodeToClusters.set(node, nodeClusters);
+            }
+            nodeClusters.add(cluster);
+        }
+    }
+
+    /**
+     * Removes the given cluster from the index
+     * @param cluster The very cluster (the same array) that has been added
+     */
+    public void remove(int[] cluster) {
+        for (int node : cluster) {
+            List<int[]> nodeClusters = (node < nodeToClusters.size()) ? nodeToClusters.get(node) : null;
+            if (nodeClusters == null) {
+                continue;
+            }
+            for (int i = 0; i < nodeClusters.size(); i++) {
+                if (nodeClusters.get(i) == cluster) {
+                    // the order within a list does not matter, so the last element fills the gap:
+                    nodeClusters.set(i, nodeClusters.get(nodeClusters.size() - 1));
+                    nodeClusters.remove(nodeClusters.size() - 1);
+                    break;
+                }
+            }
+            if (nodeClusters.isEmpty()) {
+                nodeToClusters.set(node, null);
+            }
+        }
+    }
+
+    /**
+     * @param node The node
+     * @return Returns the clusters containing the given node, or an empty list if none; must not be modified
+     */
+    public List<int[]> getClusters(int node) {
+        List<int[]> nodeClusters = (node >= 0 && node < nodeToClusters.size()) ? nodeToClusters.get(node) : null;
+        if (nodeClusters == null) {
+            return Collections.emptyList();
+        }
+        return nodeClusters;
+    }
+
+    /**
+     * Determines whether an indexed cluster contains all members of the given cluster and at least one more
+     * @param cluster The cluster; its members need to be in ascending order
+     * @return Returns whether the given cluster is a strict subset of an indexed cluster
+     */
+    public boolean isStrictSubset(int[] cluster) {
+        // every superset contains each member, so the member with the fewest clusters yields the fewest supersets to check:
+        List<int[]> candidates = null;
+        for (int node : cluster) {
+            List<int[]> nodeClusters = getClusters(node);
+            if (candidates == null || nodeClusters.size() < candidates.size()) {
+                candidates = nodeClusters;
+            }
+        }
+        if (candidates == null) {
+            return false;
+        }
+        for (int[] candidate : candidates) {
+            if (candidate.length > cluster.length && isSubset(cluster, candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Determines whether all members of subset are contained in superset by walking both in ascending order
+     * @param subset The potential subset; its members need to be in ascending order
+     * @param superset The potential superset; its members need to be in ascending order
+     * @return Returns whether subset is a subset of superset
+     */
+    private static boolean isSubset(int[] subset, int[] superset) {
+        int j = 0;
+        for (int i = 0; i < subset.length; i++) {
+            int node = subset[i];
+            while (j < superset.length && superset[j] < node) {
+                j++;
+            }
+            if (j == superset.length || superset[j] != node) {
+                return false;
+            }
+            j++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package com.vonhessling.peaktraffic;
+
+/**
+ * Receives the changes of a set of clusters as they happen.
+ * @author hessling
+ */
+public interface ClusterListener {
+
+    /**
+     * Called when a cluster has been added
+     * @param cluster The cluster's members in ascending order; must not be modified
+     */
+    void clusterAdded(int[] cluster);
+
+    /**
+     * Called when a cluster has been removed, e.g. because it turned out to be a subset of a larger cluster
+     * @param cluster The cluster's members in ascending order; must not be modified
+     */
+    void clusterRemoved(int[] cluster);
+}
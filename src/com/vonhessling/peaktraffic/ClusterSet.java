@@ -0,0 +1,224 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of clusters, each stored as a sorted int[] of node IDs, using open addressing with linear probing.
+ * Each cluster's 64 bit hash is computed once and stored next to it, so lookups only compare the members
+ * of clusters whose hash matches, and growing the table never rehashes the members.
+ * Compared to a HashSet&lt;List&lt;Integer&gt;&gt;, a stored cluster costs one int array instead of a list, its backing array
+ * and a boxed Integer per member.
+ * @author hessling
+ */
+public class ClusterSet extends AbstractCollection<int[]> {
+
+    private int[][] clusters;
+    private long[] hashes;
+    private int mask;
+    private int size;
+    private int modCount; // detects modification during iteration
+
+    public ClusterSet() {
+        this(16);
+    }
+
+    /**
+     * Creates a new set able to hold the given number of clusters without resizing
+     * @param expectedSize The expected number of clusters
+     */
+    public ClusterSet(int expectedSize) {
+        int capacity = Utils.tableSizeFor(expectedSize);
+        clusters = new int[capacity][];
+        hashes = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Computes the hash of the given cluster
+     * @param cluster The cluster's members in ascending order
+     * @return Returns the 64 bit hash
+     */
+    public static long hash(int[] cluster) {
+        long h = cluster.length;
+        for (int member : cluster) {
+            h = Utils.mix(h * 31 + member);
+        }
+        return h;
+    }
+
+    /**
+     * Adds the given cluster to this set
+     * @param cluster The cluster's members in ascending order; stored without copying, so it must not be modified afterwards
+     * @return Returns whether the cluster was not contained yet
+     */
+    @Override
+    public boolean add(int[] cluster) {
+        long h = hash(cluster);
+        int slot = (int) h & mask;
+        while (clusters[slot] != null) {
+            if (hashes[slot] == h && Arrays.equals(clusters[slot], cluster)) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        clusters[slot] = cluster;
+        hashes[slot] = h;
+        size++;
+        modCount++;
+        if (size > (mask + 1) / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether this set contains the given cluster
+     * @param o The cluster's members in ascending order, as int[]
+     * @return Returns whether this set contains the cluster
+     */
+    @Override
+    public boolean contains(Object o) {
+        return (o instanceof int[]) && (find((int[]) o) >= 0);
+    }
+
+    /**
+     * Looks up the stored cluster equal to the given one
+     * @param cluster The cluster's members in ascending order
+     * @return Returns the stored cluster, or null if not contained
+     */
+    public int[] get(int[] cluster) {
+        int slot = find(cluster);
+        return (slot < 0) ? null : clusters[slot];
+    }
+
+    /**
+     * Removes the given cluster from this set. Uses backward shift deletion, so no tombstones accumulate.
+     * @param o The cluster's members in ascending order, as int[]
+     * @return Returns whether the cluster was contained
+     */
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof int[])) {
+            return false;
+        }
+        int slot = find((int[]) o);
+        if (slot < 0) {
+            return false;
+        }
+        // shift following entries of the probe sequence back into the gap:
+        int gap = slot;
+        int cur = (gap + 1) & mask;
+        while (clusters[cur] != null) {
+            int home = (int) hashes[cur] & mask;
+            if (((cur - home) & mask) >= ((cur - gap) & mask)) { // entry may move to the gap without passing its home slot
+                clusters[gap] = clusters[cur];
+                hashes[gap] = hashes[cur];
+                gap = cur;
+            }
+            cur = (cur + 1) & mask;
+        }
+        clusters[gap] = null;
+        size--;
+        modCount++;
+        return true;
+    }
+
+    /**
+     * Removes all clusters, keeping the table size
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(clusters, null);
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * @return Returns the number of clusters in this set
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Returns an iterator over the clusters, in no particular order; the set must not be modified while iterating
+     */
+    @Override
+    public Iterator<int[]> iterator() {
+        return new Iterator<int[]>() {
+            private int slot = nextSlot(0);
+            private final int expectedModCount = modCount;
+
+            public boolean hasNext() {
+                return slot < clusters.length;
+            }
+
+            public int[] next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (slot >= clusters.length) {
+                    throw new NoSuchElementException();
+                }
+                int[] cluster = clusters[slot];
+                slot = nextSlot(slot + 1);
+                return cluster;
+            }
+        };
+    }
+
+    /**
+     * @param start The slot to start looking from
+     * @return Returns the first occupied slot at or after start, or the table size if none
+     */
+    private int nextSlot(int start) {
+        int slot = start;
+        while (slot < clusters.length && clusters[slot] == null) {
+            slot++;
+        }
+        return slot;
+    }
+
+    /**
+     * Looks up the slot of the given cluster
+     * @param cluster The cluster's members in ascending order
+     * @return Returns the slot containing the cluster, or -1 if not contained
+     */
+    private int find(int[] cluster) {
+        long h = hash(cluster);
+        int slot = (int) h & mask;
+        while (clusters[slot] != null) {
+            if (hashes[slot] == h && Arrays.equals(clusters[slot], cluster)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all clusters using their stored hashes
+     */
+    private void grow() {
+        int[][] oldClusters = clusters;
+        long[] oldHashes = hashes;
+        clusters = new int[oldClusters.length * 2][];
+        hashes = new long[oldHashes.length * 2];
+        mask = clusters.length - 1;
+        for (int i = 0; i < oldClusters.length; i++) {
+            if (oldClusters[i] != null) {
+                int slot = (int) oldHashes[i] & mask;
+                while (clusters[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                clusters[slot] = oldClusters[i];
+                hashes[slot] = oldHashes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Arrays;
+
+/**
+ * Tracks the connected components of a growing graph with a union-find structure over node IDs,
+ * using union by size and path halving, so each operation takes nearly constant time.
+ * Cliques never cross components, so components can be processed independently of each other.
+ * Edges can only be added: if edges are removed, the components tracked are unions of actual components,
+ * which is still a valid partition for processing them independently.
+ * @author hessling
+ */
+public class ConnectedComponents {
+
+    private int[] parent = new int[0]; // maps node -> its parent in the tree of its component; roots are their own parent
+    private int[] size = new int[0];   // maps root -> number of nodes in its component
+
+    /**
+     * Registers an edge, merging the components of both nodes
+     * @param node1 The first node
+     * @param node2 The second node
+     * @return Returns whether the nodes were in different components before
+     */
+    public boolean union(int node1, int node2) {
+        ensureCapacity(Math.max(node1, node2) + 1);
+        int root1 = find(node1);
+        int root2 = find(node2);
+        if (root1 == root2) {
+            return false;
+        }
+        if (size[root1] < size[root2]) { // attach the smaller tree to the larger one
+            int swap = root1;
+            root1 = root2;
+            root2 = swap;
+        }
+        parent[root2] = root1;
+        size[root1] += size[root2];
+        return true;
+    }
+
+    /**
+     * Determines the representative of the given node's component
+     * @param node The node
+     * @return Returns the root of the node's component; the same for all nodes of a component until the next union
+     */
+    public int find(int node) {
+        if (node < 0) {
+            throw new IllegalArgumentException("Given node is negative: " + node);
+        }
+        if (node >= parent.length) {
+            return node; // never connected: a component of its own
+        }
+        while (parent[node] != node) {
+            parent[node] = parent[parent[node]]; // path halving
+            node = parent[node];
+        }
+        return node;
+    }
+
+    /**
+     * @param node The node
+     * @return Returns the number of nodes in the component of the given node
+     */
+    public int getSize(int node) {
+        int root = find(node);
+        return (root < size.length) ? size[root] : 1;
+    }
+
+    /**
+     * Makes room for the given number of nodes, each in a component of its own
+     * @param numNodes The number of nodes
+     */
+    private void ensureCapacity(int numNodes) {
+        if (numNodes <= parent.length) {
+            return;
+        }
+        int oldLength = parent.length;
+        int newLength = Math.max(numNodes, 2 * oldLength);
+        parent = Arrays.copyOf(parent, newLength);
+        size = Arrays.copyOf(size, newLength);
+        for (int node = oldLength; node < newLength; node++) {
+            parent[node] = node;
+            size[node] = 1;
+        }
+    }
+}
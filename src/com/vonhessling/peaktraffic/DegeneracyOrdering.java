@@ -0,0 +1,108 @@
+package com.vonhessling.peaktraffic;
+
+/**
+ * Computes a degeneracy ordering and the core numbers of an undirected graph by repeatedly removing a node of minimal degree.
+ * Uses the bucket queue of [Batagelj V., Zaversnik M.: An O(m) Algorithm for Cores Decomposition of Networks; (2003)],
+ * so the whole computation takes O(n + m) time.
+ * In the resulting order, every node has at most d neighbors following it, where d is the graph's degeneracy.
+ * @author hessling
+ */
+public class DegeneracyOrdering {
+
+    private int[] order;    // the nodes in degeneracy order
+    private int[] position; // maps node -> its index in order
+    private int[] core;     // maps node -> core number
+    private int degeneracy;
+
+    /**
+     * Computes the degeneracy ordering of the given graph
+     * @param g The undirected graph; each edge needs to be registered at both nodes
+     */
+    public DegeneracyOrdering(Graph g) {
+        int n = g.getNodeIdBound();
+        int[] degree = new int[n];
+        int maxDegree = 0;
+        for (int node = 0; node < n; node++) {
+            degree[node] = g.getDirectNeighbors(node).size();
+            maxDegree = Math.max(maxDegree, degree[node]);
+        }
+
+        // bucket sort the nodes by degree; bucketStart[d] is the index in order of the first node with degree d:
+        int[] bucketStart = new int[maxDegree + 1];
+        for (int node = 0; node < n; node++) {
+            bucketStart[degree[node]]++;
+        }
+        int start = 0;
+        for (int d = 0; d <= maxDegree; d++) {
+            int count = bucketStart[d];
+            bucketStart[d] = start;
+            start += count;
+        }
+        order = new int[n];
+        position = new int[n];
+        for (int node = 0; node < n; node++) {
+            position[node] = bucketStart[degree[node]];
+            order[position[node]] = node;
+            bucketStart[degree[node]]++;
+        }
+        for (int d = maxDegree; d > 0; d--) {
+            bucketStart[d] = bucketStart[d - 1];
+        }
+        bucketStart[0] = 0;
+
+        // remove the nodes in order of their current degree; removing a node decrements the degree of its later neighbors,
+        // which moves each of them to the front of its bucket and then into the next lower bucket:
+        core = new int[n];
+        for (int i = 0; i < n; i++) {
+            int node = order[i];
+            core[node] = degree[node];
+            degeneracy = Math.max(degeneracy, degree[node]);
+            for (int neighbor : g.getDirectNeighbors(node).toArray()) {
+                if (degree[neighbor] > degree[node]) {
+                    int d = degree[neighbor];
+                    int neighborPos = position[neighbor];
+                    int firstPos = bucketStart[d];
+                    int first = order[firstPos];
+                    if (neighbor != first) { // swap neighbor with the first node of its bucket
+                        order[neighborPos] = first;
+                        position[first] = neighborPos;
+                        order[firstPos] = neighbor;
+                        position[neighbor] = firstPos;
+                    }
+                    bucketStart[d]++;
+                    degree[neighbor]--;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return Returns all nodes in degeneracy order
+     */
+    public int[] getOrder() {
+        return order;
+    }
+
+    /**
+     * @param node The node
+     * @return Returns the index of the node in the degeneracy order
+     */
+    public int getPosition(int node) {
+        return position[node];
+    }
+
+    /**
+     * @param node The node
+     * @return Returns the core number of the node: the largest k such that the node belongs to the k-core
+     */
+    public int getCoreNumber(int node) {
+        return core[node];
+    }
+
+    /**
+     * @return Returns the degeneracy of the graph: the largest core number of any node
+     */
+    public int getDegeneracy() {
+        return degeneracy;
+    }
+}
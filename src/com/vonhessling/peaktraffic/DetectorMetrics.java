@@ -0,0 +1,152 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts what the detector pipeline does and how long the expensive steps take, for monitoring production runs.
+ * The counters are LongAdders, which stripe concurrent updates over several cells, so the parsing and clique search
+ * threads do not contend; the detectors only update them if metrics are enabled, see AbstractDetector.setMetrics().
+ * The metrics can be read through JMX once registered, and printed to stderr periodically.
+ * @author hessling
+ */
+public class DetectorMetrics implements DetectorMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.vonhessling.peaktraffic:type=DetectorMetrics";
+
+    final LongAdder linesParsed = new LongAdder();
+    final LongAdder interactionsSkipped = new LongAdder();
+    final LongAdder selfInteractions = new LongAdder();
+    final LongAdder invalidTimestamps = new LongAdder();
+    final LongAdder outsideWindow = new LongAdder();
+    final LongAdder edgesVerified = new LongAdder();
+    final LongAdder edgesExpired = new LongAdder();
+    final LongAdder edgeUpdates = new LongAdder();
+    final LongAdder cliqueSearchSteps = new LongAdder();
+    final LongAdder clustersSubsumed = new LongAdder();
+    final LogHistogram neighborhoodSizes = new LogHistogram();
+    final LogHistogram edgeUpdateNanos = new LogHistogram();
+    final LogHistogram invalidationNanos = new LogHistogram();
+
+    private Timer timer; // prints the periodic summary, or null if not reporting
+
+    public long getLinesParsed() {
+        return linesParsed.sum();
+    }
+
+    public long getInteractionsSkipped() {
+        return interactionsSkipped.sum();
+    }
+
+    public long getSelfInteractions() {
+        return selfInteractions.sum();
+    }
+
+    public long getInvalidTimestamps() {
+        return invalidTimestamps.sum();
+    }
+
+    public long getOutsideWindow() {
+        return outsideWindow.sum();
+    }
+
+    public long getEdgesVerified() {
+        return edgesVerified.sum();
+    }
+
+    public long getEdgesExpired() {
+        return edgesExpired.sum();
+    }
+
+    public long getEdgeUpdates() {
+        return edgeUpdates.sum();
+    }
+
+    public long getCliqueSearchSteps() {
+        return cliqueSearchSteps.sum();
+    }
+
+    public long getClustersSubsumed() {
+        return clustersSubsumed.sum();
+    }
+
+    public Map<String, Long> getNeighborhoodSizes() {
+        return neighborhoodSizes.getSummary();
+    }
+
+    public Map<String, Long> getEdgeUpdateNanos() {
+        return edgeUpdateNanos.getSummary();
+    }
+
+    public Map<String, Long> getInvalidationNanos() {
+        return invalidationNanos.getSummary();
+    }
+
+    /**
+     * Registers these metrics with the platform MBean server under OBJECT_NAME
+     * @throws JMException Throws JMException if registering fails, e.g. because other metrics are registered already.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Removes these metrics from the platform MBean server
+     * @throws JMException Throws JMException if they are not registered.
+     */
+    public void unregister() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Prints a summary of the metrics periodically, on a daemon thread, until stopReporting() is called
+     * @param periodMillis The number of milliseconds between summaries
+     * @param out The stream to print to
+     */
+    public synchronized void startReporting(long periodMillis, final PrintStream out) {
+        stopReporting();
+        timer = new Timer("metrics reporter", true);
+        timer.schedule(new TimerTask() {
+            @Override
+            public void run() {
+                out.println(getSummary());
+            }
+        }, periodMillis, periodMillis);
+    }
+
+    /**
+     * Stops printing the periodic summary, if started
+     */
+    public synchronized void stopReporting() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * @return Returns all metrics on a single line
+     */
+    public String getSummary() {
+        return "metrics: lines=" + getLinesParsed()
+                + " skipped=" + getInteractionsSkipped()
+                + " self=" + getSelfInteractions()
+                + " invalidTimestamps=" + getInvalidTimestamps()
+                + " outsideWindow=" + getOutsideWindow()
+                + " verified=" + getEdgesVerified()
+                + " expired=" + getEdgesExpired()
+                + " edgeUpdates=" + getEdgeUpdates()
+                + " searchSteps=" + getCliqueSearchSteps()
+                + " subsumed=" + getClustersSubsumed()
+                + " neighborhoodSizes=" + getNeighborhoodSizes()
+                + " edgeUpdateNanos=" + getEdgeUpdateNanos()
+                + " invalidationNanos=" + getInvalidationNanos();
+    }
+}
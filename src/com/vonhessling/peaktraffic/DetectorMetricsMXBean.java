@@ -0,0 +1,75 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Map;
+
+/**
+ * The management interface of DetectorMetrics, as shown by JMX clients such as JConsole
+ * @author hessling
+ */
+public interface DetectorMetricsMXBean {
+
+    /**
+     * @return Returns the number of input lines (or binary records) read
+     */
+    long getLinesParsed();
+
+    /**
+     * @return Returns the number of repeated interactions skipped: those whose direction occurred before, or whose pair is verified already
+     */
+    long getInteractionsSkipped();
+
+    /**
+     * @return Returns the number of interactions of a node with itself, which never verify a pair
+     */
+    long getSelfInteractions();
+
+    /**
+     * @return Returns the number of lines skipped because their timestamp could not be parsed; only checked with a time window
+     */
+    long getInvalidTimestamps();
+
+    /**
+     * @return Returns the number of lines skipped because their timestamp was already outside the time window
+     */
+    long getOutsideWindow();
+
+    /**
+     * @return Returns the number of pairs verified, i.e. edges added to the verified graph
+     */
+    long getEdgesVerified();
+
+    /**
+     * @return Returns the number of verified edges removed because an interaction left the time window
+     */
+    long getEdgesExpired();
+
+    /**
+     * @return Returns the number of clique searches for new edges, i.e. edges passing the degree and common neighbor checks
+     */
+    long getEdgeUpdates();
+
+    /**
+     * @return Returns the number of recursion steps of the clique searches, online and batch
+     */
+    long getCliqueSearchSteps();
+
+    /**
+     * @return Returns the number of clusters removed because a new edge made them part of a larger cluster
+     */
+    long getClustersSubsumed();
+
+    /**
+     * @return Returns the summary of the numbers of common neighbors of the new edges searched
+     */
+    Map<String, Long> getNeighborhoodSizes();
+
+    /**
+     * @return Returns the summary of the nanoseconds spent per clique search for a new edge, including removing subsumed clusters
+     */
+    Map<String, Long> getEdgeUpdateNanos();
+
+    /**
+     * @return Returns the summary of the nanoseconds spent per expired edge on removing and splitting the clusters containing it
+     */
+    Map<String, Long> getInvalidationNanos();
+}
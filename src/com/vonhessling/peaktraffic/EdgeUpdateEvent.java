@@ -0,0 +1,41 @@
+package com.vonhessling.peaktraffic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for the clique search after a new verified edge, see ClusterFinder.updateClustersEdge().
+ * Only recorded if the search takes at least the threshold (1 ms by default), to single out pathological neighborhoods;
+ * costs nothing unless a recording enables it. Nodes are given by their IDs, which are assigned in order of first occurrence in the log.
+ * @author hessling
+ */
+@Name("com.vonhessling.peaktraffic.EdgeUpdate")
+@Label("Edge Update")
+@Category("Peak Traffic")
+@Description("Clique search for a newly verified edge, including removing the clusters it subsumes")
+@Threshold("1 ms")
+@StackTrace(false)
+class EdgeUpdateEvent extends Event {
+
+    @Label("From Node")
+    int fromId;
+
+    @Label("To Node")
+    int toId;
+
+    @Label("Neighborhood Size")
+    @Description("The number of common neighbors of both nodes searched")
+    int neighborhoodSize;
+
+    @Label("Cliques Found")
+    int cliquesFound;
+
+    @Label("Clusters Subsumed")
+    @Description("The number of clusters removed because they became part of a larger one")
+    int clustersSubsumed;
+}
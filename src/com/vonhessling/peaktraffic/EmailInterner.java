@@ -0,0 +1,249 @@
+package com.vonhessling.peaktraffic;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Assigns dense int IDs (0, 1, 2, ...) to email addresses given as raw bytes.
+ * All emails are stored back to back in a single byte arena, and an offsets array indexed by ID marks where each one starts;
+ * the lookup table is an open addressing table of IDs. So an email costs its bytes plus a few ints, instead of a String,
+ * its backing array, a map entry and a boxed Integer in each direction. No object is created when looking up a known email.
+ * The arena is a single array, which limits the total size of all distinct emails to 2GB.
+ * @author hessling
+ */
+public class EmailInterner {
+
+    private static final int EMPTY = -1; // marks a free slot in the table
+
+    private byte[] arena = new byte[4096]; // the bytes of all emails, in ID order
+    private int arenaSize = 0;
+    private int[] offsets = new int[1025];  // maps ID -> start of its email in the arena; offsets[size] is the end of the last email
+    private int[] hashes = new int[1024];   // maps ID -> hash of its email
+    private int size = 0;
+
+    private int[] table; // the IDs, placed by the hash of their email
+    private int mask;
+
+    public EmailInterner() {
+        table = new int[Utils.tableSizeFor(1024)];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+    }
+
+    /**
+     * Determines the ID for the email in the given byte range; assigns the next ID if the email is new.
+     * @param buffer The buffer containing the email
+     * @param start The index of the first byte of the email
+     * @param end The index after the last byte of the email
+     * @return Returns the ID
+     */
+    public int intern(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        int h = hash(buffer, start, end);
+        int slot = find(buffer, start, end, h);
+        if (table[slot] != EMPTY) {
+            return table[slot];
+        }
+        ensureArenaCapacity(length);
+        for (int i = 0; i < length; i++) {
+            arena[arenaSize + i] = buffer.get(start + i);
+        }
+        return add(slot, h, length);
+    }
+
+    /**
+     * Looks up the ID of the given email without assigning one
+     * @param email The email
+     * @return Returns the ID, or -1 if the email has not been interned
+     */
+    public int getId(String email) {
+        byte[] bytes = email.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int slot = find(buffer, 0, bytes.length, hash(buffer, 0, bytes.length));
+        return table[slot];
+    }
+
+    /**
+     * Determines the ID for the given email; assigns the next ID if the email is new.
+     * @param bytes The array containing the email
+     * @param offset The index of the first byte of the email
+     * @param length The number of bytes of the email
+     * @return Returns the ID
+     */
+    public int intern(byte[] bytes, int offset, int length) {
+        return intern(ByteBuffer.wrap(bytes), offset, offset + length);
+    }
+
+    /**
+     * Determines the ID in this interner for an email of another interner; assigns the next ID if the email is new here.
+     * The other interner's hash of the email is reused, so the bytes are only read to compare them with a candidate.
+     * @param other The other interner
+     * @param otherId The email's ID in the other interner
+     * @return Returns the ID in this interner
+     */
+    public int intern(EmailInterner other, int otherId) {
+        int start = other.offsets[otherId];
+        int length = other.offsets[otherId + 1] - start;
+        int h = other.hashes[otherId];
+        ByteBuffer buffer = ByteBuffer.wrap(other.arena);
+        int slot = find(buffer, start, start + length, h);
+        if (table[slot] != EMPTY) {
+            return table[slot];
+        }
+        ensureArenaCapacity(length);
+        System.arraycopy(other.arena, start, arena, arenaSize, length);
+        return add(slot, h, length);
+    }
+
+    /**
+     * @param id The ID
+     * @return Returns the email with the given ID, decoded as UTF-8
+     */
+    public String getEmail(int id) {
+        if ((id < 0) || (id >= size)) {
+            throw new IllegalArgumentException("Unknown ID: " + id);
+        }
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @param id The ID
+     * @return Returns the number of bytes of the email with the given ID
+     */
+    public int getLength(int id) {
+        if ((id < 0) || (id >= size)) {
+            throw new IllegalArgumentException("Unknown ID: " + id);
+        }
+        return offsets[id + 1] - offsets[id];
+    }
+
+    /**
+     * Copies the raw bytes of the email with the given ID into the buffer
+     * @param id The ID
+     * @param buffer The buffer, receiving getLength(id) bytes at its position
+     */
+    public void getBytes(int id, ByteBuffer buffer) {
+        buffer.put(arena, offsets[id], getLength(id));
+    }
+
+    /**
+     * @return Returns the number of distinct emails, which is also the next ID to be assigned
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param buffer The buffer containing the email
+     * @param start The index of the first byte of the email
+     * @param end The index after the last byte of the email
+     * @return Returns the hash of the email's bytes
+     */
+    private static int hash(ByteBuffer buffer, int start, int end) {
+        int h = 1;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + buffer.get(i);
+        }
+        return h;
+    }
+
+    /**
+     * Looks up the table slot of the email in the given byte range
+     * @param buffer The buffer containing the email
+     * @param start The index of the first byte of the email
+     * @param end The index after the last byte of the email
+     * @param h The hash of the email
+     * @return Returns the slot containing the email's ID, or the free slot where it belongs if not interned yet
+     */
+    private int find(ByteBuffer buffer, int start, int end, int h) {
+        int slot = (int) Utils.mix(h) & mask;
+        int id;
+        while ((id = table[slot]) != EMPTY) {
+            if (hashes[id] == h && equals(id, buffer, start, end - start)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Determines whether the email with the given ID equals the given byte range
+     * @param id The ID
+     * @param buffer The buffer containing the other email
+     * @param start The index of the first byte of the other email
+     * @param length The number of bytes of the other email
+     * @return Returns whether both are equal
+     */
+    private boolean equals(int id, ByteBuffer buffer, int start, int length) {
+        int offset = offsets[id];
+        if (offsets[id + 1] - offset != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (arena[offset + i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Registers the email just copied to the end of the arena under the next ID
+     * @param slot The free table slot for the new ID
+     * @param h The email's hash
+     * @param length The email's number of bytes
+     * @return Returns the new ID
+     */
+    private int add(int slot, int h, int length) {
+        int id = size;
+        if (id + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, 2 * offsets.length);
+            hashes = Arrays.copyOf(hashes, offsets.length - 1);
+        }
+        arenaSize += length;
+        offsets[id + 1] = arenaSize;
+        hashes[id] = h;
+        table[slot] = id;
+        size++;
+        if (size > table.length / 2) {
+            grow();
+        }
+        return id;
+    }
+
+    /**
+     * Makes sure the arena can take the given number of additional bytes
+     * @param length The number of bytes to add
+     */
+    private void ensureArenaCapacity(int length) {
+        long required = (long) arenaSize + length;
+        if (required > arena.length) {
+            long capacity = Math.max(required, 2L * arena.length);
+            if (capacity > Integer.MAX_VALUE - 8) {
+                if (required > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Too many distinct emails: their total size exceeds 2GB");
+                }
+                capacity = Integer.MAX_VALUE - 8;
+            }
+            arena = Arrays.copyOf(arena, (int) capacity);
+        }
+    }
+
+    /**
+     * Doubles the table size and re-inserts all IDs using their stored hashes
+     */
+    private void grow() {
+        table = new int[table.length * 2];
+        Arrays.fill(table, EMPTY);
+        mask = table.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = (int) Utils.mix(hashes[id]) & mask;
+            while (table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = id;
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package com.vonhessling.peaktraffic;
 
-import java.util.HashSet;
-import java.util.Hashtable;
-import java.util.Set;
+import java.util.Arrays;
 
+/**
+ * A directed graph over dense, non-negative int node IDs.
+ * The neighbor sets are stored in an array indexed by node ID, so looking up a node's neighbors is a single array access.
+ */
 public class Graph {
-    
-    private Hashtable<String, Set<String>> g = new Hashtable<String, Set<String>>();
+
+    private static final IntHashSet NO_NEIGHBORS = new IntHashSet(0); // returned for nodes without edges; never modified
+
+    private IntHashSet[] g = new IntHashSet[16];
 
     /**
      * Determines whether this graph contains an edge from node1 to node2
@@ -14,64 +18,83 @@ public class Graph {
      * @param node2 The target node for the edge
      * @return Returns whether this graph contains an edge from node1 to node2
      */
-    public boolean containsEdge(String node1, String node2) {
-        if ((node1 == null) || (node2 == null)){
-            throw new IllegalArgumentException("Given node(s) are null!");
+    public boolean containsEdge(int node1, int node2) {
+        if ((node1 < 0) || (node2 < 0)){
+            throw new IllegalArgumentException("Given node(s) are negative!");
+        }
+        if (node1 >= g.length) {
+            return false;
         }
-        Set<String> neighbors = getDirectNeighbors(node1); 
+        IntHashSet neighbors = g[node1];
         if (neighbors == null) {
             return false;
         }
-        return neighbors.contains(node2); 
+        return neighbors.contains(node2);
     }
-    
+
     /**
-     * Adds the given edge to this graph
+     * Adds the given edge to this graph. Not thread-safe in general; concurrent calls are only safe if no two threads touch
+     * the same source node and every source node is below getNodeIdBound() already, so the array of neighbor sets is not
+     * replaced while others read or write it (see ClusterFinder.updateClustersEdges()).
      * @param node1 The source node for the edge
      * @param node2 The target node for the edge
      */
-    public void addEdge(String node1, String node2) {
-        if ((node1 == null) || (node2 == null)){
-            throw new IllegalArgumentException("Given node(s) are null!");
+    public void addEdge(int node1, int node2) {
+        if ((node1 < 0) || (node2 < 0)){
+            throw new IllegalArgumentException("Given node(s) are negative!");
+        }
+        if (node1 >= g.length) {
+            g = Arrays.copyOf(g, Math.max(node1 + 1, 2 * g.length));
         }
-        Set<String> neighbors = g.get(node1);
+        IntHashSet neighbors = g[node1];
         if (neighbors == null) {
-            Set<String> entry = new HashSet<String>();
-            entry.add(node2);
-            g.put(node1, entry);
-        } else {
-            neighbors.add(node2);
+            neighbors = new IntHashSet();
+            g[node1] = neighbors;
         }
+        neighbors.add(node2);
     }
-    
+
     /**
      * Removes the edge from node1 to node2 in this graph
      * @param node1 The source node for the edge
      * @param node2 The target node for the edge
      */
-    public void removeEdge(String node1, String node2) {
-        if ((node1 == null) || (node2 == null)){
-            throw new IllegalArgumentException("Given node(s) are null!");
+    public void removeEdge(int node1, int node2) {
+        if ((node1 < 0) || (node2 < 0)){
+            throw new IllegalArgumentException("Given node(s) are negative!");
         }
-        Set<String> neighbors = g.get(node1);
+        if (node1 >= g.length) {
+            return;
+        }
+        IntHashSet neighbors = g[node1];
         if (neighbors != null) {
             neighbors.remove(node2);
         }
     }
-    
+
     /**
      * Determines the direct neighbors of the given node in this graph
      * @param node The node for which to get it's neighbors
-     * @return Returns the direct neighbors of the given node, or an empty set if none
+     * @return Returns the direct neighbors of the given node, or an empty set if none. The set must not be modified by the caller.
      */
-    public Set<String> getDirectNeighbors(String node) {
-        if (node == null) {
-            throw new IllegalArgumentException("Given node is null!");
+    public IntHashSet getDirectNeighbors(int node) {
+        if (node < 0) {
+            throw new IllegalArgumentException("Given node is negative!");
         }
-        Set<String> neighbors = g.get(node);
+        if (node >= g.length) {
+            return NO_NEIGHBORS;
+        }
+        IntHashSet neighbors = g[node];
         if (neighbors == null) {
-            return new HashSet<String>();
+            return NO_NEIGHBORS;
         }
-        return neighbors; 
+        return neighbors;
+    }
+
+    /**
+     * @return Returns an upper bound for the node IDs in this graph: all nodes with edges have smaller IDs
+     */
+    public int getNodeIdBound() {
+        return g.length;
     }
 }
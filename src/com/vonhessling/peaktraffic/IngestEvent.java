@@ -0,0 +1,37 @@
+package com.vonhessling.peaktraffic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+
+/**
+ * A periodic Flight Recorder event reporting the ingest throughput of a detector, once per second by default
+ * @author hessling
+ */
+@Name("com.vonhessling.peaktraffic.Ingest")
+@Label("Ingest Throughput")
+@Category("Peak Traffic")
+@Description("Lines read and edges verified by a detector, both since the previous period and in total")
+@Period("1 s")
+@StackTrace(false)
+class IngestEvent extends Event {
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Lines per Second")
+    double linesPerSecond;
+
+    @Label("Edges Verified")
+    long edgesVerified;
+
+    @Label("Total Lines")
+    long totalLines;
+
+    @Label("Total Edges Verified")
+    long totalEdgesVerified;
+}
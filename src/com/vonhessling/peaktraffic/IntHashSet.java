@@ -0,0 +1,175 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Arrays;
+
+/**
+ * A set of non-negative primitive ints (node IDs) using open addressing with linear probing.
+ * Used as neighbor set in the graph, where a Set&lt;Integer&gt; would cost a boxed Integer and a map entry per edge.
+ * @author hessling
+ */
+public class IntHashSet {
+
+    private static final int EMPTY = -1; // marks a free slot; node IDs are never negative
+    private static final int MIN_CAPACITY = 4;
+
+    private int[] keys;
+    private int mask;
+    private int size;
+
+    public IntHashSet() {
+        this(1);
+    }
+
+    /**
+     * Creates a new set able to hold the given number of elements without resizing
+     * @param expectedSize The expected number of elements
+     */
+    public IntHashSet(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        keys = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the given key to this set
+     * @param key The key to add; needs to be non-negative
+     * @return Returns whether the key was not contained yet
+     */
+    public boolean add(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key needs to be non-negative: " + key);
+        }
+        int slot = slotFor(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        if (size > (mask + 1) / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether this set contains the given key
+     * @param key The key to look for
+     * @return Returns whether this set contains the key
+     */
+    public boolean contains(int key) {
+        int slot = slotFor(key);
+        int cur;
+        while ((cur = keys[slot]) != EMPTY) {
+            if (cur == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Removes the given key from this set. Uses backward shift deletion, so no tombstones accumulate.
+     * @param key The key to remove
+     * @return Returns whether the key was contained
+     */
+    public boolean remove(int key) {
+        int slot = slotFor(key);
+        while (keys[slot] != key) {
+            if (keys[slot] == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        // shift following entries of the probe sequence back into the gap:
+        int gap = slot;
+        int cur = (gap + 1) & mask;
+        while (keys[cur] != EMPTY) {
+            int home = slotFor(keys[cur]);
+            if (((cur - home) & mask) >= ((cur - gap) & mask)) { // entry may move to the gap without passing its home slot
+                keys[gap] = keys[cur];
+                gap = cur;
+            }
+            cur = (cur + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+        return true;
+    }
+
+    /**
+     * @return Returns the number of elements in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Returns a new array containing the elements of this set, in no particular order
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int i = 0;
+        for (int key : keys) {
+            if (key != EMPTY) {
+                result[i++] = key;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the elements contained in both this set and the other set into the given array.
+     * Iterates over the smaller of the two sets.
+     * @param other The set to intersect with
+     * @param result The array receiving the common elements; needs to hold at least min(size(), other.size()) elements
+     * @return Returns the number of common elements
+     */
+    public int intersect(IntHashSet other, int[] result) {
+        if (other.size < size) {
+            return other.intersect(this, result);
+        }
+        int count = 0;
+        for (int key : keys) {
+            if ((key != EMPTY) && other.contains(key)) {
+                result[count++] = key;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Determines the home slot for the given key
+     * @param key The key
+     * @return Returns the slot at which the probe sequence for the key starts
+     */
+    private int slotFor(int key) {
+        return (int) Utils.mix(key) & mask;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all keys
+     */
+    private void grow() {
+        int[] oldKeys = keys;
+        keys = new int[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        mask = keys.length - 1;
+        for (int key : oldKeys) {
+            if (key != EMPTY) {
+                int slot = slotFor(key);
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of which directed interactions happened within a sliding time window, and reports those leaving it.
+ * The latest time of each direction is kept in an open addressing table; a binary heap ordered by time (the expiry queue)
+ * holds one entry per direction. Repeating an interaction only updates the table; when the outdated heap entry
+ * reaches the top, it is re-queued with the latest time instead of expiring. So the queue never holds more entries
+ * than there are directions in the window, no matter how often interactions are repeated, and timestamps that are
+ * slightly out of order are expired at the right time.
+ * @author hessling
+ */
+public class InteractionWindow {
+
+    public static final long NONE = -1L; // returned by pollExpired() if no interaction has left the window
+
+    private static final long EMPTY = 0L; // marks a free slot; the key 0 would be node 0 interacting with itself, which is never stored
+
+    private final int windowSeconds;
+    private long clock = Integer.MIN_VALUE; // the latest time seen
+
+    private long[] keys;   // the directions: (from, to) packed into a long
+    private int[] times;   // the latest time of each direction
+    private int mask;
+    private int size;
+
+    private long[] heapKeys = new long[16];
+    private int[] heapTimes = new int[16];
+    private int heapSize = 0;
+
+    /**
+     * Creates a new window of the given length
+     * @param windowSeconds The number of seconds an interaction stays within the window
+     */
+    public InteractionWindow(int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("Window length needs to be positive: " + windowSeconds);
+        }
+        this.windowSeconds = windowSeconds;
+        keys = new long[Utils.tableSizeFor(16)];
+        times = new int[keys.length];
+        mask = keys.length - 1;
+    }
+
+    /**
+     * Moves the window's end forward to the given time, unless it is there already
+     * @param time The time in seconds since the epoch
+     * @return Returns whether the given time is still within the window
+     */
+    public boolean advance(int time) {
+        clock = Math.max(clock, time);
+        return time > clock - windowSeconds;
+    }
+
+    /**
+     * Records an interaction from one node towards another one at the given time
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred; needs to differ from fromId
+     * @param time The time in seconds since the epoch
+     */
+    public void record(int fromId, int toId, int time) {
+        if ((fromId < 0) || (toId < 0) || (fromId == toId)) {
+            throw new IllegalArgumentException("Given nodes need to be distinct and non-negative: " + fromId + ", " + toId);
+        }
+        long key = ((long) fromId << 32) | toId;
+        int slot = (int) Utils.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                times[slot] = Math.max(times[slot], time); // the queued entry is brought up to date when it reaches the top
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        times[slot] = time;
+        size++;
+        if (size > (mask + 1) / 2) {
+            grow();
+        }
+        push(key, time);
+    }
+
+    /**
+     * Removes the next interaction whose latest time has left the window
+     * @return Returns the interaction's (from, to) packed into a long, see getFrom() and getTo(), or NONE if there is none
+     */
+    public long pollExpired() {
+        while (heapSize > 0 && heapTimes[0] <= clock - windowSeconds) {
+            long key = heapKeys[0];
+            int slot = find(key);
+            if (times[slot] > heapTimes[0]) { // repeated since queued: re-queue with the latest time
+                heapTimes[0] = times[slot];
+                siftDown(0);
+                continue;
+            }
+            heapSize--;
+            heapKeys[0] = heapKeys[heapSize];
+            heapTimes[0] = heapTimes[heapSize];
+            siftDown(0);
+            remove(slot);
+            return key;
+        }
+        return NONE;
+    }
+
+    /**
+     * @param key An interaction returned by pollExpired()
+     * @return Returns the ID of the node from which the interaction occurred
+     */
+    public static int getFrom(long key) {
+        return (int) (key >>> 32);
+    }
+
+    /**
+     * @param key An interaction returned by pollExpired()
+     * @return Returns the ID of the node towards which the interaction occurred
+     */
+    public static int getTo(long key) {
+        return (int) key;
+    }
+
+    /**
+     * @return Returns the number of directed interactions within the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Looks up the slot of the given direction
+     * @param key The direction
+     * @return Returns the slot; the direction needs to be contained
+     */
+    private int find(long key) {
+        int slot = (int) Utils.mix(key) & mask;
+        while (keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Removes the direction in the given slot. Uses backward shift deletion, so no tombstones accumulate.
+     * @param slot The slot
+     */
+    private void remove(int slot) {
+        int gap = slot;
+        int cur = (gap + 1) & mask;
+        while (keys[cur] != EMPTY) {
+            int home = (int) Utils.mix(keys[cur]) & mask;
+            if (((cur - home) & mask) >= ((cur - gap) & mask)) { // entry may move to the gap without passing its home slot
+                keys[gap] = keys[cur];
+                times[gap] = times[cur];
+                gap = cur;
+            }
+            cur = (cur + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Adds an entry to the expiry queue
+     * @param key The direction
+     * @param time The time at which it was queued
+     */
+    private void push(long key, int time) {
+        if (heapSize == heapKeys.length) {
+            heapKeys = Arrays.copyOf(heapKeys, 2 * heapSize);
+            heapTimes = Arrays.copyOf(heapTimes, 2 * heapSize);
+        }
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (heapTimes[parent] <= time) {
+                break;
+            }
+            heapKeys[i] = heapKeys[parent];
+            heapTimes[i] = heapTimes[parent];
+            i = parent;
+        }
+        heapKeys[i] = key;
+        heapTimes[i] = time;
+    }
+
+    /**
+     * Moves the entry at the given position down the expiry queue until both children are not earlier
+     * @param i The position
+     */
+    private void siftDown(int i) {
+        long key = heapKeys[i];
+        int time = heapTimes[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapTimes[child + 1] < heapTimes[child]) {
+                child++;
+            }
+            if (heapTimes[child] >= time) {
+                break;
+            }
+            heapKeys[i] = heapKeys[child];
+            heapTimes[i] = heapTimes[child];
+            i = child;
+        }
+        heapKeys[i] = key;
+        heapTimes[i] = time;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all directions
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldTimes = times;
+        keys = new long[oldKeys.length * 2];
+        times = new int[oldTimes.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = (int) Utils.mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                times[slot] = oldTimes[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.vonhessling.peaktraffic;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event for updating the clusters after a verified edge left the time window, see ClusterFinder.updateClustersRemoved().
+ * Only recorded if the update takes at least the threshold (1 ms by default); costs nothing unless a recording enables it.
+ * @author hessling
+ */
+@Name("com.vonhessling.peaktraffic.Invalidation")
+@Label("Cluster Invalidation")
+@Category("Peak Traffic")
+@Description("Removing the clusters containing an expired edge and adding their remaining maximal parts")
+@Threshold("1 ms")
+@StackTrace(false)
+class InvalidationEvent extends Event {
+
+    @Label("Node 1")
+    int node1;
+
+    @Label("Node 2")
+    int node2;
+
+    @Label("Clusters Removed")
+    int clustersRemoved;
+
+    @Label("Clusters Added")
+    int clustersAdded;
+}
@@ -0,0 +1,139 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Follows a growing log file like "tail -F": every poll parses the complete lines appended since the previous poll.
+ * A line is only parsed once its newline has been written, so lines written in several steps are never split.
+ * Rotation is detected by the file at the given path being replaced (a different file key) or truncated (shrinking);
+ * the remaining lines of the old file are parsed before continuing with the new file from its start.
+ * Polling is used rather than a WatchService, as the latter reports neither appends to files on network file systems
+ * nor reliably the replacement of a file on all platforms.
+ * @author hessling
+ */
+public class LogFollower {
+
+    private static final int SCAN_BUFFER_SIZE = 4096; // the number of bytes read at once while looking for the last newline
+
+    private final Path path;
+    private final MappedLogParser parser = new MappedLogParser();
+    private FileChannel channel; // the followed file, or null if not opened yet
+    private Object fileKey;      // identifies the followed file, or null if the platform has no file keys
+    private long position;       // the position after the last parsed line
+
+    /**
+     * Creates a new follower of the file with the given name, starting at its beginning. The file does not need to exist yet.
+     * @param fileName The name of the file to follow
+     */
+    public LogFollower(String fileName) {
+        path = Paths.get(fileName);
+    }
+
+    /**
+     * Parses all complete lines appended since the previous poll
+     * @param handler The handler to call for each line
+     * @return Returns whether any bytes have been parsed
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    public boolean poll(MappedLogParser.LineHandler handler) throws IOException {
+        boolean parsed = false;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) { // rotated away, and the new file is not created yet
+            attributes = null;
+        }
+        if (channel != null && attributes != null && isRotated(attributes)) {
+            // the old file is complete now, so a last line without newline is complete as well:
+            long size = channel.size();
+            if (size > position) {
+                parser.parse(channel, position, size, handler);
+                parsed = true;
+            }
+            close();
+        }
+        if (channel == null) {
+            if (attributes == null) {
+                return parsed;
+            }
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.READ);
+            } catch (NoSuchFileException e) {
+                return parsed;
+            }
+            fileKey = attributes.fileKey();
+            position = 0;
+        }
+        long end = findLineEnd(channel.size());
+        if (end > position) {
+            parser.parse(channel, position, end, handler);
+            position = end;
+            parsed = true;
+        }
+        return parsed;
+    }
+
+    /**
+     * Closes the followed file; the next poll reopens it and starts at its beginning.
+     * @throws IOException Throws IOException if error occurs closing the file.
+     */
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    /**
+     * Determines whether the path refers to a different file than the opened one, or the opened file has been truncated
+     * @param attributes The current attributes of the file at the path
+     * @return Returns whether the file has been rotated
+     * @throws IOException Throws IOException if error occurs reading the file's size.
+     */
+    private boolean isRotated(BasicFileAttributes attributes) throws IOException {
+        Object currentKey = attributes.fileKey();
+        if (fileKey != null && currentKey != null && !fileKey.equals(currentKey)) {
+            return true;
+        }
+        return channel.size() < position;
+    }
+
+    /**
+     * Determines the end of the last complete line between the current position and the given size
+     * @param size The current size of the file
+     * @return Returns the position after the last newline, or the current position if there is none
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    private long findLineEnd(long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long blockEnd = size;
+        while (blockEnd > position) {
+            long blockStart = Math.max(position, blockEnd - SCAN_BUFFER_SIZE);
+            buffer.clear();
+            buffer.limit((int) (blockEnd - blockStart));
+            int read = 0;
+            while (buffer.hasRemaining()) {
+                int n = channel.read(buffer, blockStart + read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                if (buffer.get(i) == '\n') {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return position;
+    }
+}
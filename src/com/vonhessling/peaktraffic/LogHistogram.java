@@ -0,0 +1,124 @@
+package com.vonhessling.peaktraffic;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values with logarithmic buckets, in the spirit of HdrHistogram: every power of two is split into
+ * SUB_BUCKETS linear buckets, so each recorded value is known up to a relative error of 1/SUB_BUCKETS, from nanoseconds to hours
+ * in a fixed number of buckets. The buckets are LongAdders, so concurrent recording threads hardly contend.
+ * Reading while recording yields a consistent enough snapshot for monitoring, not an exact one.
+ * @author hessling
+ */
+public class LogHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int NUM_BUCKETS = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[NUM_BUCKETS];
+    private final LongAdder sum = new LongAdder();
+
+    public LogHistogram() {
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records a value
+     * @param value The value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets[bucketOf(value)].increment();
+        sum.add(value);
+    }
+
+    /**
+     * @param value The non-negative value
+     * @return Returns the index of the bucket holding the given value
+     */
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) { // the first power of two is linear all the way
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value); // at least SUB_BUCKET_BITS
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @param bucket The index of a bucket
+     * @return Returns the largest value the bucket holds
+     */
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+        return lowest + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    /**
+     * @return Returns the number of values recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * @return Returns the sum of all values recorded
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Summarizes the values recorded so far
+     * @return Returns the count, the mean and the 50th, 90th, 99th and 100th percentile (the latter as "max");
+     *  the percentiles are the upper ends of the buckets they fall into
+     */
+    public Map<String, Long> getSummary() {
+        long[] counts = new long[NUM_BUCKETS];
+        long count = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            count += counts[i];
+        }
+        Map<String, Long> summary = new LinkedHashMap<String, Long>();
+        summary.put("count", count);
+        summary.put("mean", (count == 0) ? 0 : sum.sum() / count);
+        summary.put("p50", percentile(counts, count, 0.5));
+        summary.put("p90", percentile(counts, count, 0.9));
+        summary.put("p99", percentile(counts, count, 0.99));
+        summary.put("max", percentile(counts, count, 1.0));
+        return summary;
+    }
+
+    /**
+     * @param counts The number of values in each bucket
+     * @param count The total number of values
+     * @param fraction The fraction of values that are at most the percentile, between 0 and 1
+     * @return Returns the percentile, or 0 if there are no values
+     */
+    private static long percentile(long[] counts, long count, double fraction) {
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValueOf(i);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,103 @@
+package com.vonhessling.peaktraffic;
+
+/**
+ * A set of primitive longs using open addressing with linear probing.
+ * Avoids boxing a Long per element, which matters when storing one entry per edge.
+ * @author hessling
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L; // marks a free slot; the key 0 itself is tracked separately
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private boolean containsEmpty;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    /**
+     * Creates a new set able to hold the given number of elements without resizing
+     * @param expectedSize The expected number of elements
+     */
+    public LongHashSet(int expectedSize) {
+        int capacity = Utils.tableSizeFor(expectedSize);
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Adds the given key to this set
+     * @param key The key to add
+     * @return Returns whether the key was not contained yet
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (containsEmpty) {
+                return false;
+            }
+            containsEmpty = true;
+            size++;
+            return true;
+        }
+        int slot = (int) Utils.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        size++;
+        if (size > (mask + 1) / 2) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * Determines whether this set contains the given key
+     * @param key The key to look for
+     * @return Returns whether this set contains the key
+     */
+    public boolean contains(long key) {
+        if (key == EMPTY) {
+            return containsEmpty;
+        }
+        int slot = (int) Utils.mix(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the number of elements in this set
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all keys
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        keys = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key != EMPTY) {
+                int slot = (int) Utils.mix(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+}
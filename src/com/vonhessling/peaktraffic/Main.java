@@ -3,17 +3,142 @@ package com.vonhessling.peaktraffic;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 
+import javax.management.JMException;
+
 public class Main {
 
+    private static final String USAGE = "Usage: [-batch | -follow | -convert <binary file>] [-window <minutes>] [-threads <n>] [-metrics] <file name>";
+    private static final long FOLLOW_POLL_MILLIS = 1000; // the time to wait for new lines in follow mode
+    private static final long METRICS_PERIOD_MILLIS = 10000; // the time between metrics summaries on stderr
+    private static final int MAX_WINDOW_MINUTES = Integer.MAX_VALUE / 60; // longer windows do not fit into int seconds
+
     /**
      * Main class calling the cluster detector algorithm for the given input file name
-     * @param args Requires the input file name as a single parameter. 
+     * @param args Requires the input file name as last parameter, optionally preceded by options:
+     *  "-batch" to enumerate the clusters once after reading the entire input instead of after every new mutual interaction,
+     *  "-follow" to keep reading lines appended to the (possibly rotating) file and print cluster changes as they happen,
+     *  as lines starting with "+ " for new clusters and "- " for clusters that are no longer maximal,
+     *  "-convert <binary file>" to convert the input file into a binary edge log instead, which can be given as input file later on,
+     *  "-window <minutes>" to only consider the interactions of the last given number of minutes, as determined by the lines' timestamps,
+     *  "-threads <n>" to parse the input (and, with -batch, enumerate the clusters) on n threads; with -window, the input is parsed on a single thread,
+     *  "-metrics" to count what the detector does, print a summary to stderr every 10 seconds and at the end, and expose the metrics through JMX.
      */
-    public static void main(String[] args) throws FileNotFoundException, IOException {
+    public static void main(String[] args) throws FileNotFoundException, IOException, InterruptedException {
         if (args.length < 1) {
             System.err.println("Error: need to provide file name containing input!  Suggestion: try var/peaktraffic-9erDuplicates.txt");
             System.exit(-1);
         }
-        new OnlineDetector().findClusters(args[0]);
+        boolean batch = false;
+        boolean follow = false;
+        String binaryFileName = null;
+        int numThreads = 1;
+        int windowSeconds = 0;
+        boolean metricsEnabled = false;
+        for (int i = 0; i < args.length - 1; i++) {
+            if (args[i].equals("-batch")) {
+                batch = true;
+            } else if (args[i].equals("-follow")) {
+                follow = true;
+            } else if (args[i].equals("-convert") && i + 1 < args.length - 1) {
+                binaryFileName = args[++i];
+            } else if (args[i].equals("-window") && i + 1 < args.length - 1) {
+                windowSeconds = parseWindowMinutes(args[++i]) * 60;
+            } else if (args[i].equals("-threads") && i + 1 < args.length - 1) {
+                numThreads = parseThreads(args[++i]);
+            } else if (args[i].equals("-metrics")) {
+                metricsEnabled = true;
+            } else {
+                System.err.println("Error: unknown option " + args[i] + "!  " + USAGE);
+                System.exit(-1);
+            }
+        }
+        if (windowSeconds > 0 && numThreads > 1 && !follow && binaryFileName == null) {
+            System.err.println("Warning: with -window, the input is parsed on a single thread; -threads only applies to enumerating the clusters with -batch");
+        }
+        if (binaryFileName != null) {
+            long numRecords = BinaryEdgeLog.convert(args[args.length - 1], binaryFileName);
+            System.err.println("Wrote " + numRecords + " records to " + binaryFileName);
+            return;
+        }
+        DetectorMetrics metrics = null;
+        if (metricsEnabled) {
+            metrics = new DetectorMetrics();
+            try {
+                metrics.register();
+            } catch (JMException e) {
+                System.err.println("Warning: cannot register the metrics with JMX: " + e.getMessage());
+            }
+            metrics.startReporting(METRICS_PERIOD_MILLIS, System.err);
+        }
+        if (follow) {
+            if (batch) {
+                System.err.println("Error: -batch and -follow cannot be combined!  " + USAGE);
+                System.exit(-1);
+            }
+            final OnlineDetector detector = new OnlineDetector();
+            detector.setMetrics(metrics);
+            if (windowSeconds > 0) {
+                detector.setWindow(windowSeconds);
+            }
+            detector.follow(args[args.length - 1], FOLLOW_POLL_MILLIS, new ClusterListener() {
+                public void clusterAdded(int[] cluster) {
+                    System.out.println("+ " + detector.formatCluster(cluster));
+                }
+
+                public void clusterRemoved(int[] cluster) {
+                    System.out.println("- " + detector.formatCluster(cluster));
+                }
+            });
+            return;
+        }
+        AbstractDetector detector = batch ? new BatchDetector() : new OnlineDetector();
+        detector.setMetrics(metrics);
+        if (windowSeconds > 0) {
+            detector.setWindow(windowSeconds);
+        }
+        detector.findClusters(args[args.length - 1], numThreads);
+        if (metrics != null) {
+            metrics.stopReporting();
+            System.err.println(metrics.getSummary());
+        }
+    }
+
+    /**
+     * Parses the length of the time window given with -window; exits with an error message unless it is a number of minutes
+     * between 1 and MAX_WINDOW_MINUTES
+     * @param arg The argument following -window
+     * @return Returns the number of minutes
+     */
+    private static int parseWindowMinutes(String arg) {
+        int windowMinutes = -1;
+        try {
+            windowMinutes = Integer.parseInt(arg);
+        } catch (NumberFormatException e) {
+            // reported below like any other invalid length
+        }
+        if (windowMinutes < 1 || windowMinutes > MAX_WINDOW_MINUTES) {
+            System.err.println("Error: the window needs to be between 1 and " + MAX_WINDOW_MINUTES + " minutes: " + arg + "!  " + USAGE);
+            System.exit(-1);
+        }
+        return windowMinutes;
+    }
+
+    /**
+     * Parses the number of threads given with -threads; exits with an error message unless it is a number of at least 1
+     * @param arg The argument following -threads
+     * @return Returns the number of threads
+     */
+    private static int parseThreads(String arg) {
+        int numThreads = -1;
+        try {
+            numThreads = Integer.parseInt(arg);
+        } catch (NumberFormatException e) {
+            // reported below like any other invalid number
+        }
+        if (numThreads < 1) {
+            System.err.println("Error: the number of threads needs to be at least 1: " + arg + "!  " + USAGE);
+            System.exit(-1);
+        }
+        return numThreads;
     }
 }
@@ -0,0 +1,154 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Parses interaction log files directly from memory-mapped bytes.
+ * Each line is scanned for its two tabs; the byte ranges of the date and of the sender and recipient emails
+ * are handed to a LineHandler without being decoded, so no String is created per line.
+ * Large files are mapped in windows because a single mapping is limited to 2GB.
+ * @author hessling
+ */
+public class MappedLogParser {
+
+    private static final int MAX_WINDOW_SIZE = 256 * 1024 * 1024; // the maximal number of bytes mapped at once
+
+    private static final byte TAB = '\t';
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /**
+     * Receives the date, sender and recipient of each parsed line as byte ranges within the mapped buffer.
+     * The buffer is only valid during the call; implementations need to copy the bytes they want to keep.
+     */
+    public interface LineHandler {
+        /**
+         * Handles a single log line
+         * @param buffer The buffer containing the line
+         * @param dateStart The index of the first byte of the date
+         * @param dateEnd The index after the last byte of the date
+         * @param fromStart The index of the first byte of the sender's email
+         * @param fromEnd The index after the last byte of the sender's email
+         * @param toStart The index of the first byte of the recipient's email
+         * @param toEnd The index after the last byte of the recipient's email
+         */
+        void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd);
+    }
+
+    private final int windowSize;
+
+    public MappedLogParser() {
+        this(MAX_WINDOW_SIZE);
+    }
+
+    /**
+     * Creates a new parser mapping at most the given number of bytes at once.
+     * @param windowSize The maximal mapping size; needs to be larger than the longest line
+     */
+    public MappedLogParser(int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size needs to be positive: " + windowSize);
+        }
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Parses the entire file with the given name.
+     * @param fileName The file name from which to read input data
+     * @param handler The handler to call for each line
+     * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    public void parse(String fileName, LineHandler handler) throws FileNotFoundException, IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            parse(channel, 0, channel.size(), handler);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Parses all lines in the given byte range of the channel.
+     * @param channel The channel to read from
+     * @param start The position of the first byte of the first line to parse
+     * @param end The position after the last byte to parse; lines crossing this position are parsed up to it
+     * @param handler The handler to call for each line
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    public void parse(FileChannel channel, long start, long end, LineHandler handler) throws IOException {
+        long windowStart = start;
+        while (windowStart < end) {
+            int size = (int) Math.min(windowSize, end - windowStart);
+            boolean last = (windowStart + size == end);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+            int consumed = parseWindow(buffer, size, last, handler);
+            if (consumed == 0) {
+                throw new IOException("Line at position " + windowStart + " is longer than the window size of " + windowSize + " bytes");
+            }
+            windowStart += consumed;
+        }
+    }
+
+    /**
+     * Parses all complete lines in the given window
+     * @param buffer The mapped window
+     * @param size The number of bytes in the window
+     * @param last Whether the window ends at the end of the input, in which case a trailing line without newline is complete as well
+     * @param handler The handler to call for each line
+     * @return Returns the number of bytes consumed, i.e. the index after the last newline (or size if last)
+     */
+    private int parseWindow(MappedByteBuffer buffer, int size, boolean last, LineHandler handler) {
+        int lineStart = 0;
+        int pos = 0;
+        int firstTab = -1;
+        int secondTab = -1;
+        byte b;
+        while (pos < size) {
+            b = buffer.get(pos);
+            if (b == NEWLINE) {
+                handleLine(buffer, lineStart, firstTab, secondTab, pos, handler);
+                lineStart = pos + 1;
+                firstTab = -1;
+                secondTab = -1;
+            } else if (b == TAB) {
+                if (firstTab < 0) {
+                    firstTab = pos;
+                } else if (secondTab < 0) {
+                    secondTab = pos;
+                }
+            }
+            pos++;
+        }
+        if (last && lineStart < size) { // the last line may or may not have a newline at its end
+            handleLine(buffer, lineStart, firstTab, secondTab, size, handler);
+            return size;
+        }
+        return lineStart;
+    }
+
+    /**
+     * Calls the handler for a single line, skipping lines that do not contain two tabs (e.g. empty lines)
+     * @param buffer The mapped window
+     * @param lineStart The index of the first byte of the line
+     * @param firstTab The index of the tab following the date, or -1
+     * @param secondTab The index of the tab following the sender's email, or -1
+     * @param lineEnd The index of the newline ending the line, or the window's size
+     * @param handler The handler to call
+     */
+    private void handleLine(ByteBuffer buffer, int lineStart, int firstTab, int secondTab, int lineEnd, LineHandler handler) {
+        if (secondTab < 0) {
+            return;
+        }
+        if ((lineEnd > secondTab + 1) && (buffer.get(lineEnd - 1) == CARRIAGE_RETURN)) {
+            lineEnd--;
+        }
+        handler.handleLine(buffer, lineStart, firstTab, firstTab + 1, secondTab, secondTab + 1, lineEnd);
+    }
+}
@@ -1,189 +1,167 @@
 package com.vonhessling.peaktraffic;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Hashtable;
 import java.util.List;
-import java.util.Set;
-import java.util.StringTokenizer;
 
 /**
  * A bottom-up approach to finding the largest maximal clusters (cliques) in a graph.
- * Uses the Bron-Kerbosch algorithm and the Algorithm T internally to rapidly identify the clusters. 
+ * Uses the Bron-Kerbosch algorithm internally to rapidly identify the clusters.
+ * The clusters are updated after every newly verified edge, which makes this detector suitable for streaming input,
+ * including following a growing log file with follow(). With multiple threads, the verified edges are processed in batches,
+ * whose connected components are updated concurrently.
  * @author hessling
  */
-public class OnlineDetector {
+public class OnlineDetector extends AbstractDetector {
+
+    private static final int EDGES_PER_BATCH = 8192; // the number of verified edges processed together when using multiple threads
 
-    private final int MIN_CLUSTER_SIZE = 3; // the minimal cluster size we're interested in
-    
-    private int idCounter = 0; // assigns individual email addresses a unique ID
-    private Hashtable<String, String> emailToIds = new Hashtable<String, String>(); // maps email -> ID
-    private Hashtable<String, String> idsToEmail = new Hashtable<String, String>(); // maps ID -> email
-    
     private ClusterFinder finder;
-    private List<Graph> graphs = new ArrayList<Graph>(); // contains the unverified graph and the verified graph (in that order)
-    
+    private int[] pendingEdges = new int[2 * EDGES_PER_BATCH]; // the pairs of nodes of the verified edges not processed yet
+    private int numPending = 0;
+
     public OnlineDetector() {
-        graphs.add(new Graph()); // the unverified graph: each existing edge is directed (valid in one direction only)
-        graphs.add(new Graph()); // the existing verified graph: each edge is undirected and registered at both nodes (duplicate)
-        finder = new ClusterFinder(getVerifiedGraph()); 
+        finder = new ClusterFinder(getVerifiedGraph());
     }
 
-   /**
-    * Runs the cluster detection algorithm.
-    * @param fileName The file name from which to read input data
-    * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
-    * @throws IOException Throws IOException if error occurs reading the file.
-    */    
-    public void findClusters(String fileName) throws FileNotFoundException, IOException {
-        // let potential FileNotFoundException propagate out
-        BufferedReader inReader = new BufferedReader(new FileReader(fileName));
-        String curLine;
-        String from = null;
-        String to = null;
-        String fromId;
-        String toId;
-        StringTokenizer st;
-        boolean first;
-        Set<String> neighborIntersection;
-        Set<String> fromNeighbors;
-        Set<String> toNeighbors;
-        // let potential IOException propagate out
-        while ((curLine = inReader.readLine()) != null) {
-            st = new StringTokenizer(curLine, "\t"); // split each line at tabs
-            st.nextToken(); // skip first token, the date
-            first = true;
-            while (st.hasMoreTokens()) {
-                if (first) {
-                    from = st.nextToken();
-                } else {
-                    to = st.nextToken();
-                }
-                first = false;
-            }
-            fromId = getNodeId(from); // convert email addresses into IDs
-            toId = getNodeId(to);            
+    /**
+     * Enables metrics, including the work and time spent on updating the clusters
+     * @param metrics The metrics to update, or null to disable metrics
+     */
+    @Override
+    public void setMetrics(DetectorMetrics metrics) {
+        super.setMetrics(metrics);
+        finder.setMetrics(metrics);
+    }
 
-            if (!updateGraphs(fromId, toId)) { // add edge;  only continue processing if the graph situation has changed sufficiently
-                continue;
+    /**
+     * Follows the growing (and possibly rotating) log file with the given name until the calling thread is interrupted.
+     * After each poll that found new lines, the changes of the clusters since the previous poll are reported:
+     * first the clusters that are no longer maximal, then the new maximal clusters. Clusters that emerge and are
+     * subsumed by larger ones within the same poll are not reported at all.
+     * @param fileName The name of the file to follow; starts at its beginning
+     * @param pollMillis The number of milliseconds to wait between polls that found no new lines
+     * @param listener The listener receiving the cluster changes
+     * @throws IOException Throws IOException if error occurs reading the file.
+     * @throws InterruptedException Throws InterruptedException if interrupted while waiting for new lines.
+     */
+    public void follow(String fileName, long pollMillis, ClusterListener listener) throws IOException, InterruptedException {
+        final ClusterSet added = new ClusterSet();           // clusters added since the previous poll
+        final List<int[]> removed = new ArrayList<int[]>(); // clusters reported before and removed since the previous poll
+        finder.setListener(new ClusterListener() {
+            public void clusterAdded(int[] cluster) {
+                added.add(cluster);
             }
 
-            fromNeighbors = getVerifiedGraph().getDirectNeighbors(fromId); // get the direct neighbors of the "from node" in the verified graph
-            toNeighbors = getVerifiedGraph().getDirectNeighbors(toId);     // get the direct neighbors of the   "to node" in the verified graph
-            // this is only a minor improvement in speed:
-            // we're only interested in finding clusters of MIN_CLUSTER_SIZE <==> each vertex needs to have at least (MIN_CLUSTER_SIZE - 1) direct neighbors to start the Bron Kerbosch algorithm
-            if (fromNeighbors.size() < MIN_CLUSTER_SIZE - 1 || toNeighbors.size() < MIN_CLUSTER_SIZE - 1) { 
-                continue;
+            public void clusterRemoved(int[] cluster) {
+                if (!added.remove(cluster)) {
+                    removed.add(cluster);
+                }
             }
-            // now, if the intersection of fromNeighbors and toNeighbors (plus from, to nodes) are not of the minimal size, skip to next iteration
-            neighborIntersection = new HashSet<String>(fromNeighbors); 
-            neighborIntersection.retainAll(toNeighbors); // new cliques can only be in the _intersection_ between from/toNeighbor
-            // from node and to node are parts of the neighborhood to evaluate, of course:
-            neighborIntersection.add(fromId);
-            neighborIntersection.add(toId);
-            if (neighborIntersection.size() < MIN_CLUSTER_SIZE) { 
-                continue;
+        });
+        LogFollower follower = new LogFollower(fileName);
+        Runnable ingestEvents = startIngestEvents();
+        try {
+            while (true) {
+                if (!follower.poll(this)) {
+                    Thread.sleep(pollMillis);
+                    continue;
+                }
+                for (int[] cluster : removed) {
+                    listener.clusterRemoved(cluster);
+                }
+                for (int[] cluster : added) {
+                    listener.clusterAdded(cluster);
+                }
+                added.clear();
+                removed.clear();
             }
-
-            finder.updateClustersLocal(neighborIntersection); 
-        } // end loop over every input line
-
-        // remove the clusters that are not maximal:
-        finder.cleanSubsetClusters();
-        printClusters(finder.getClusters());
+        } finally {
+            stopIngestEvents(ingestEvents);
+            follower.close();
+            finder.setListener(null);
+            finder.shutdown();
+        }
     }
-    
+
     /**
-     * Gets the graph whose edges are directed and do not imply that the interaction was mutual
-     * @return The "unverified" graph
+     * Processes the last batch of verified edges, and stops the threads processing the batches, as the input has been read.
+     * @return Returns the maximal clusters found
      */
-    private Graph getUnverifiedGraph() {
-        return graphs.get(0);
+    @Override
+    protected ClusterSet collectClusters() {
+        processPendingEdges();
+        finder.shutdown();
+        return finder.getClusters();
     }
-    
+
     /**
-     * Gets the graph whose edges are undirected and _do_ imply that the interaction was mutual
-     * @return The "verified" graph
+     * Can be called at any time, e.g. while following a log file; the clusters are kept maximal after every edge.
+     * @return Returns the maximal clusters of the interactions read so far; must not be modified
      */
-    private Graph getVerifiedGraph() {
-        return graphs.get(1);
+    public ClusterSet getClusters() {
+        processPendingEdges();
+        return finder.getClusters();
     }
-    
+
     /**
-     * Records the edge information in the corresponding graph. 
-     * @param fromId The ID of the node from which the interaction occurred
-     * @param toId The ID of the node towards which the interaction occurred
-     * @return Returns whether the graphs may have changed the cluster situation (whether the cluster finding algorithm needs to be started or not)
+     * Determines the clusters a single user is part of, using the inverted index from nodes to clusters
+     * instead of scanning all clusters. Can be called at any time, e.g. while following a log file.
+     * @param email The user's email address
+     * @return Returns the user's maximal clusters in the required format, sorted alphabetically; empty if none or the user is unknown
      */
-    private boolean updateGraphs(String fromId, String toId) {
-        Graph verifiedGraph = getVerifiedGraph();
-        Graph unverifiedGraph = getUnverifiedGraph();
-        if (verifiedGraph.containsEdge(fromId, toId)) { // ignoring repeat edges that have been verified already
-            return false;
+    public List<String> getClusters(String email) {
+        processPendingEdges();
+        List<String> result = new ArrayList<String>();
+        int node = findNodeId(email);
+        if (node < 0) {
+            return result;
         }
-        if (unverifiedGraph.containsEdge(toId, fromId)) { // verifying edges: move them from unverified graph to verified graph
-            verifiedGraph.addEdge(fromId, toId);
-            verifiedGraph.addEdge(toId, fromId);
-            unverifiedGraph.removeEdge(toId, fromId);
-            return true;
-        } else {
-            unverifiedGraph.addEdge(fromId, toId); // adding first unverified edge
-            return false;
+        for (int[] cluster : finder.getClusters(node)) {
+            result.add(formatCluster(cluster));
         }
+        Collections.sort(result);
+        return result;
     }
 
     /**
-     * Determines the node id for the given email address; either looks the existing ID up or assigns a new one. 
-     * @param email The email address
-     * @return The node id
+     * Looks for the new clusters containing the newly verified edge. When using multiple threads without a window,
+     * the edges are collected into batches whose connected components are processed concurrently.
+     * @param fromId The ID of the node from which the verifying interaction occurred
+     * @param toId The ID of the node towards which the verifying interaction occurred
      */
-    private String getNodeId(String email) {
-        String id = emailToIds.get(email);
-        if (id == null) {
-            emailToIds.put(email, idCounter + "");
-            idsToEmail.put(idCounter + "", email);
-            idCounter++;
-            return (idCounter - 1) + "";
-        } else {
-            return id;
+    @Override
+    protected void edgeVerified(int fromId, int toId) {
+        if (getNumThreads() <= 1 || isWindowed()) {
+            finder.updateClustersEdge(fromId, toId);
+            return;
+        }
+        pendingEdges[2 * numPending] = fromId;
+        pendingEdges[2 * numPending + 1] = toId;
+        numPending++;
+        if (numPending == EDGES_PER_BATCH) {
+            processPendingEdges();
         }
     }
 
     /**
-     * Prints all clusters in the required format
-     * @param clusters The clusters to print.
+     * Updates the clusters for the collected verified edges, processing their connected components concurrently
      */
-    public void printClusters(HashSet<List<String>> clusters) {
-        int idCounter = 0;
-        List<String> allStrings = new ArrayList<String>();
-        StringBuffer curStringBuffer;
-        
-        for (List<String> curCluster : clusters) {
-            curStringBuffer = new StringBuffer();
-            // sort the email addresses within a cluster alphabetically:
-            List<String> clusterEmails = new ArrayList<String>();
-            for (idCounter = 0; idCounter < curCluster.size(); idCounter++) {
-                clusterEmails.add(idsToEmail.get(curCluster.get(idCounter)));
-            }
-            Collections.sort(clusterEmails);
-            
-            // create the entire string representation for the cluster:
-            for (idCounter = 0; idCounter < curCluster.size(); idCounter++) {
-                curStringBuffer.append(clusterEmails.get(idCounter) + (idCounter < curCluster.size() - 1? ", " : ""));
-            }
-            allStrings.add(curStringBuffer.toString());
-        }
-        // sort all clusters alphabetically:
-        Collections.sort(allStrings);
-        
-        // print all clusters:
-        for (String curString: allStrings) {
-            System.out.println(curString);
+    private void processPendingEdges() {
+        if (numPending > 0) {
+            finder.updateClustersEdges(pendingEdges, numPending, getComponents(), getNumThreads());
+            numPending = 0;
         }
     }
+
+    /**
+     * Removes the clusters that are no longer cliques and adds the remaining parts that are maximal
+     * @param node1 The first node of the removed edge
+     * @param node2 The second node of the removed edge
+     */
+    @Override
+    protected void edgeExpired(int node1, int node2) {
+        finder.updateClustersRemoved(node1, node2);
+    }
 }
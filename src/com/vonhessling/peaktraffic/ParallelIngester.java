@@ -0,0 +1,226 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses a single large input file on multiple threads.
+ * The file is split into newline-aligned byte ranges (chunks), several per thread; each chunk is parsed and its emails
+ * are interned into a chunk-local dictionary on a pool thread. The resulting edge buffers are handed to a ChunkConsumer
+ * in file order, so the consumer sees the same edges in the same order as a sequential read (minus repeated interactions).
+ * Consuming a chunk is serial, so only a bounded number of chunks is parsed ahead of it: memory does not grow with the file.
+ * The serial part bounds the speedup: merging a chunk into a detector (re-interning its distinct emails into the global
+ * dictionary, then adding its edges) takes roughly as long as parsing it, so ingesting is at most about twice as fast
+ * with many threads as with one. IngestBenchmark in benchmarks/ measures both parts by thread count.
+ * @author hessling
+ */
+public class ParallelIngester {
+
+    private static final int SCAN_BUFFER_SIZE = 4096;     // the number of bytes read at once while looking for a chunk boundary
+    private static final long MIN_CHUNK_SIZE = 1L << 20;  // smaller chunks would mostly add the cost of merging their dictionaries
+    private static final long MAX_CHUNK_SIZE = 1L << 26;  // bounds the memory of a single parsed chunk
+    private static final int CHUNKS_PER_THREAD = 4;       // threads finishing their chunk early take another one
+    private static final int IN_FLIGHT_PER_THREAD = 2;    // the chunks per thread submitted but not consumed yet
+
+    /**
+     * Receives the parsed chunks in file order
+     */
+    public interface ChunkConsumer {
+        /**
+         * Handles a parsed chunk
+         * @param chunk The chunk's dictionary and edges
+         */
+        void consumeChunk(Chunk chunk);
+    }
+
+    /**
+     * The result of parsing a single chunk: a local email dictionary and the edges between local IDs.
+     * Repeated interactions (same sender and recipient) within the chunk are dropped, as they never change the graphs.
+     */
+    public static class Chunk implements MappedLogParser.LineHandler {
+        private EmailInterner emails = new EmailInterner(); // maps email bytes <-> local ID
+        private LongHashSet seenEdges = new LongHashSet();
+        private int[] edges = new int[1024]; // pairs of local (from, to) IDs
+        private int numEdges = 0;
+        private long numLines = 0;
+
+        public void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd) {
+            numLines++;
+            int from = emails.intern(buffer, fromStart, fromEnd);
+            int to = emails.intern(buffer, toStart, toEnd);
+            if (!seenEdges.add(((long) from << 32) | (to & 0xffffffffL))) { // repeated interaction
+                return;
+            }
+            if (2 * numEdges + 2 > edges.length) {
+                int[] newEdges = new int[2 * edges.length];
+                System.arraycopy(edges, 0, newEdges, 0, 2 * numEdges);
+                edges = newEdges;
+            }
+            edges[2 * numEdges] = from;
+            edges[2 * numEdges + 1] = to;
+            numEdges++;
+        }
+
+        /**
+         * @return Returns the emails of this chunk, indexed by local ID
+         */
+        public EmailInterner getEmails() {
+            return emails;
+        }
+
+        /**
+         * @return Returns the number of lines in this chunk, including repeated interactions
+         */
+        public long getNumLines() {
+            return numLines;
+        }
+
+        /**
+         * @return Returns the number of distinct edges in this chunk
+         */
+        public int getNumEdges() {
+            return numEdges;
+        }
+
+        /**
+         * @param i The index of the edge
+         * @return Returns the local ID of the sender of the i-th edge
+         */
+        public int getFrom(int i) {
+            return edges[2 * i];
+        }
+
+        /**
+         * @param i The index of the edge
+         * @return Returns the local ID of the recipient of the i-th edge
+         */
+        public int getTo(int i) {
+            return edges[2 * i + 1];
+        }
+    }
+
+    private final int numThreads;
+    private final long chunkSize; // the number of bytes per chunk, or 0 to derive it from the file size
+
+    /**
+     * Creates a new ingester using the given number of threads
+     * @param numThreads The number of threads to use
+     */
+    public ParallelIngester(int numThreads) {
+        this(numThreads, 0);
+    }
+
+    /**
+     * Creates a new ingester using the given number of threads and chunk size
+     * @param numThreads The number of threads to use
+     * @param chunkSize The number of bytes per chunk (rounded up to the next line end), or 0 to split the file into about
+     * CHUNKS_PER_THREAD chunks per thread, within MIN_CHUNK_SIZE and MAX_CHUNK_SIZE
+     */
+    ParallelIngester(int numThreads, long chunkSize) {
+        if (numThreads < 1) {
+            throw new IllegalArgumentException("Number of threads needs to be positive: " + numThreads);
+        }
+        if (chunkSize < 0) {
+            throw new IllegalArgumentException("Chunk size must not be negative: " + chunkSize);
+        }
+        this.numThreads = numThreads;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Parses the file with the given name and hands its chunks to the consumer in file order.
+     * Chunks are consumed as soon as they and all preceding chunks are parsed, overlapping consumption and parsing.
+     * At most IN_FLIGHT_PER_THREAD chunks per thread are parsed or waiting to be consumed at any time; a new chunk is only
+     * submitted once the oldest one has been consumed.
+     * @param fileName The file name from which to read input data
+     * @param consumer The consumer receiving the chunks; called on the calling thread only
+     * @throws FileNotFoundException Throws FileNotFoundException if file is not found.
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    public void ingest(String fileName, ChunkConsumer consumer) throws FileNotFoundException, IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final FileChannel channel = file.getChannel();
+            long size = channel.size();
+            long bytesPerChunk = (chunkSize > 0) ? chunkSize
+                    : Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size / (CHUNKS_PER_THREAD * numThreads)));
+            Deque<Future<Chunk>> inFlight = new ArrayDeque<Future<Chunk>>(); // in file order
+            long chunkStart = 0;
+            while (chunkStart < size || !inFlight.isEmpty()) {
+                while (chunkStart < size && inFlight.size() < IN_FLIGHT_PER_THREAD * numThreads) {
+                    final long start = chunkStart;
+                    final long end = findLineStart(channel, Math.min(size, start + bytesPerChunk));
+                    inFlight.addLast(executor.submit(new Callable<Chunk>() {
+                        public Chunk call() throws IOException {
+                            Chunk chunk = new Chunk();
+                            new MappedLogParser().parse(channel, start, end, chunk);
+                            return chunk;
+                        }
+                    }));
+                    chunkStart = end;
+                }
+                consumer.consumeChunk(getResult(inFlight.removeFirst()));
+            }
+        } finally {
+            executor.shutdownNow();
+            file.close();
+        }
+    }
+
+    /**
+     * Determines the start of the first line at or after the given position
+     * @param channel The channel to read from
+     * @param position The position to start looking from
+     * @return Returns the position following the first newline at or after position - 1, or the channel size if none
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    private long findLineStart(FileChannel channel, long position) throws IOException {
+        if (position == 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long pos = position - 1;
+        int read;
+        while ((read = channel.read(buffer, pos)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return pos + i + 1;
+                }
+            }
+            pos += read;
+            buffer.clear();
+        }
+        return channel.size();
+    }
+
+    /**
+     * Waits for the given parsing task, unwrapping its IOException if it failed
+     * @param future The parsing task
+     * @return Returns the parsed chunk
+     * @throws IOException Throws IOException if the task failed reading the file.
+     */
+    private Chunk getResult(Future<Chunk> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while parsing input", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+}
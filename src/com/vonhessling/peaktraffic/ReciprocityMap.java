@@ -0,0 +1,189 @@
+package com.vonhessling.peaktraffic;
+
+/**
+ * Tracks the interaction state of each pair of nodes in a single open addressing table.
+ * A pair is keyed by (min(id), max(id)) packed into a long; its state holds one bit per interaction direction
+ * and one bit telling whether the pair has been verified, i.e. has interacted in both directions.
+ * Recording an interaction costs a single probe, no matter whether the pair is new, pending or verified already.
+ * @author hessling
+ */
+public class ReciprocityMap {
+
+    public static final int FIRST_DIRECTION = 0; // returned by recordInteraction() if the interaction is the first in its direction, but the pair is not verified
+    public static final int REPEATED = 1;        // returned by recordInteraction() if the interaction occurred before, or the pair is verified already
+    public static final int VERIFYING = 2;       // returned by recordInteraction() if the interaction verified the pair
+
+    private static final long EMPTY = 0L; // marks a free slot; the key 0 would be a node paired with itself, which is never stored
+
+    private static final byte LOW_TO_HIGH = 1; // the node with the lower ID interacted with the one with the higher ID
+    private static final byte HIGH_TO_LOW = 2; // the node with the higher ID interacted with the one with the lower ID
+    private static final byte VERIFIED = 4;    // both directions occurred
+
+    private long[] keys;
+    private byte[] states;
+    private int mask;
+    private int size;
+
+    public ReciprocityMap() {
+        this(1024);
+    }
+
+    /**
+     * Creates a new map able to hold the given number of pairs without resizing
+     * @param expectedSize The expected number of pairs
+     */
+    public ReciprocityMap(int expectedSize) {
+        int capacity = Utils.tableSizeFor(expectedSize);
+        keys = new long[capacity];
+        states = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Records an interaction from one node towards another one.
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred; needs to differ from fromId
+     * @return Returns VERIFYING if this interaction verified the pair, i.e. the opposite direction had occurred before and the pair was not verified yet,
+     * REPEATED if it did not change the pair's state, and FIRST_DIRECTION otherwise
+     */
+    public int recordInteraction(int fromId, int toId) {
+        if ((fromId < 0) || (toId < 0) || (fromId == toId)) {
+            throw new IllegalArgumentException("Given nodes need to be distinct and non-negative: " + fromId + ", " + toId);
+        }
+        long key = key(fromId, toId);
+        int slot = (int) Utils.mix(key) & mask;
+        long cur;
+        while ((cur = keys[slot]) != EMPTY) {
+            if (cur == key) {
+                break;
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte direction = (fromId < toId) ? LOW_TO_HIGH : HIGH_TO_LOW;
+        if (cur == EMPTY) { // first interaction between these nodes
+            keys[slot] = key;
+            states[slot] = direction;
+            size++;
+            if (size > (mask + 1) / 2) {
+                grow();
+            }
+            return FIRST_DIRECTION;
+        }
+        byte state = states[slot];
+        if ((state & (VERIFIED | direction)) != 0) { // ignoring repeat interactions
+            return REPEATED;
+        }
+        states[slot] = (byte) (state | direction | VERIFIED); // the opposite direction must have occurred
+        return VERIFYING;
+    }
+
+    /**
+     * Forgets an interaction from one node towards another one, e.g. because it is too old to be considered anymore.
+     * The pair is no longer verified afterwards; it is removed entirely if the opposite direction did not occur either.
+     * @param fromId The ID of the node from which the interaction occurred
+     * @param toId The ID of the node towards which the interaction occurred
+     * @return Returns whether the pair was verified before
+     */
+    public boolean removeInteraction(int fromId, int toId) {
+        if (fromId == toId) {
+            return false;
+        }
+        long key = key(fromId, toId);
+        int slot = (int) Utils.mix(key) & mask;
+        long cur;
+        while ((cur = keys[slot]) != key) {
+            if (cur == EMPTY) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte state = states[slot];
+        byte remaining = (byte) (state & ~(VERIFIED | ((fromId < toId) ? LOW_TO_HIGH : HIGH_TO_LOW)));
+        if (remaining != 0) {
+            states[slot] = remaining;
+        } else {
+            remove(slot);
+        }
+        return (state & VERIFIED) != 0;
+    }
+
+    /**
+     * Determines whether both nodes have interacted with each other in both directions
+     * @param node1 The first node
+     * @param node2 The second node
+     * @return Returns whether the pair is verified
+     */
+    public boolean isVerified(int node1, int node2) {
+        if (node1 == node2) {
+            return false;
+        }
+        long key = key(node1, node2);
+        int slot = (int) Utils.mix(key) & mask;
+        long cur;
+        while ((cur = keys[slot]) != EMPTY) {
+            if (cur == key) {
+                return (states[slot] & VERIFIED) != 0;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return Returns the number of pairs that have interacted in at least one direction
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Determines the key of the given pair of nodes, which is the same for both directions
+     * @param node1 The first node
+     * @param node2 The second node
+     * @return Returns the lower ID in the upper 32 bits and the higher ID in the lower 32 bits
+     */
+    private static long key(int node1, int node2) {
+        return ((long) Math.min(node1, node2) << 32) | Math.max(node1, node2);
+    }
+
+    /**
+     * Removes the pair in the given slot. Uses backward shift deletion, so no tombstones accumulate.
+     * @param slot The slot
+     */
+    private void remove(int slot) {
+        int gap = slot;
+        int cur = (gap + 1) & mask;
+        while (keys[cur] != EMPTY) {
+            int home = (int) Utils.mix(keys[cur]) & mask;
+            if (((cur - home) & mask) >= ((cur - gap) & mask)) { // entry may move to the gap without passing its home slot
+                keys[gap] = keys[cur];
+                states[gap] = states[cur];
+                gap = cur;
+            }
+            cur = (cur + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        size--;
+    }
+
+    /**
+     * Doubles the table size and re-inserts all pairs
+     */
+    private void grow() {
+        long[] oldKeys = keys;
+        byte[] oldStates = states;
+        keys = new long[oldKeys.length * 2];
+        states = new byte[oldStates.length * 2];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = (int) Utils.mix(oldKeys[i]) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                states[slot] = oldStates[i];
+            }
+        }
+    }
+}
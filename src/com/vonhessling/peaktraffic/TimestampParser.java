@@ -0,0 +1,197 @@
+package com.vonhessling.peaktraffic;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses the timestamps of the log lines, such as "Thu Dec 11 17:53:01 PST 2008" or "Fri Apr  9 17:40:12 2009",
+ * directly from their bytes into seconds since the epoch.
+ * Unlike SimpleDateFormat, no object is created per timestamp and the fixed format is scanned in a single pass:
+ * the day of the week is skipped, the day of the month may be padded by a space, and the time zone is optional (UTC if missing).
+ * Only UTC/GMT and the US and central European zone abbreviations are known. The result is an int, so timestamps
+ * after 2038-01-19 03:14:07 UTC are not supported: they are INVALID, just like the ones before 1970.
+ * @author hessling
+ */
+public class TimestampParser {
+
+    public static final int INVALID = Integer.MIN_VALUE; // returned for timestamps that cannot be parsed
+
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+    private static final String[] ZONES = { "UTC", "GMT", "Z", "EST", "EDT", "CST", "CDT", "MST", "MDT", "PST", "PDT", "CET", "CEST" };
+    private static final int[] ZONE_OFFSET_HOURS = { 0, 0, 0, -5, -4, -6, -5, -7, -6, -8, -7, 1, 2 };
+    private static final int[] DAYS_PER_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    private TimestampParser() {
+    }
+
+    /**
+     * Parses the timestamp in the given byte range
+     * @param buffer The buffer containing the timestamp
+     * @param start The index of the first byte of the timestamp
+     * @param end The index after the last byte of the timestamp
+     * @return Returns the seconds since the epoch, or INVALID if the timestamp is malformed (including days past the end of
+     * the month), uses an unknown time zone or is outside the int range of seconds
+     */
+    public static int parse(ByteBuffer buffer, int start, int end) {
+        int pos = skipSpaces(buffer, start, end);
+        pos = skipLetters(buffer, pos, end); // the day of the week
+        pos = skipSpaces(buffer, pos, end);
+        if (pos + 3 > end) {
+            return INVALID;
+        }
+        int month = -1;
+        for (int m = 0; m < 12 && month < 0; m++) {
+            if (buffer.get(pos) == MONTHS.charAt(3 * m) && buffer.get(pos + 1) == MONTHS.charAt(3 * m + 1)
+                    && buffer.get(pos + 2) == MONTHS.charAt(3 * m + 2)) {
+                month = m + 1;
+            }
+        }
+        if (month < 0) {
+            return INVALID;
+        }
+        pos = skipSpaces(buffer, pos + 3, end);
+        int dayEnd = skipDigits(buffer, pos, end);
+        int day = toInt(buffer, pos, dayEnd);
+        pos = skipSpaces(buffer, dayEnd, end);
+        // HH:mm:ss
+        if (pos + 8 > end || buffer.get(pos + 2) != ':' || buffer.get(pos + 5) != ':') {
+            return INVALID;
+        }
+        int hour = toInt(buffer, pos, pos + 2);
+        int minute = toInt(buffer, pos + 3, pos + 5);
+        int second = toInt(buffer, pos + 6, pos + 8);
+        pos = skipSpaces(buffer, pos + 8, end);
+        int zoneEnd = skipLetters(buffer, pos, end);
+        int offsetHours = 0;
+        if (zoneEnd > pos) {
+            int zone = findZone(buffer, pos, zoneEnd);
+            if (zone < 0) {
+                return INVALID;
+            }
+            offsetHours = ZONE_OFFSET_HOURS[zone];
+            pos = skipSpaces(buffer, zoneEnd, end);
+        }
+        int yearEnd = skipDigits(buffer, pos, end);
+        int year = toInt(buffer, pos, yearEnd);
+        if (skipSpaces(buffer, yearEnd, end) != end || day < 1 || day > daysOfMonth(year, month) || hour < 0 || hour > 23
+                || minute < 0 || minute > 59 || second < 0 || second > 60 || year < 1970) {
+            return INVALID;
+        }
+        long seconds = daysSinceEpoch(year, month, day) * 86400L + hour * 3600 + minute * 60 + second - offsetHours * 3600;
+        if (seconds < 0 || seconds > Integer.MAX_VALUE) {
+            return INVALID;
+        }
+        return (int) seconds;
+    }
+
+    /**
+     * @param year The year
+     * @param month The month, 1 to 12
+     * @return Returns the number of days of the given month of the proleptic Gregorian calendar
+     */
+    private static int daysOfMonth(int year, int month) {
+        if (month == 2 && year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) {
+            return 29;
+        }
+        return DAYS_PER_MONTH[month - 1];
+    }
+
+    /**
+     * Computes the number of days from 1970-01-01 to the given date of the proleptic Gregorian calendar
+     * @param year The year
+     * @param month The month, 1 to 12
+     * @param day The day of the month, 1 to 31
+     * @return Returns the number of days
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        // count years from March, so the leap day is the last day of a year:
+        int y = (month <= 2) ? year - 1 : year;
+        int era = y / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param start The index of the first byte of the zone abbreviation
+     * @param end The index after the last byte of the zone abbreviation
+     * @return Returns the index of the zone in ZONES, or -1 if unknown
+     */
+    private static int findZone(ByteBuffer buffer, int start, int end) {
+        for (int zone = 0; zone < ZONES.length; zone++) {
+            String name = ZONES[zone];
+            if (name.length() != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < name.length() && buffer.get(start + i) == name.charAt(i)) {
+                i++;
+            }
+            if (i == name.length()) {
+                return zone;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param start The index of the first digit
+     * @param end The index after the last digit
+     * @return Returns the decimal value of the digits, or -1 if there are none or too many
+     */
+    private static int toInt(ByteBuffer buffer, int start, int end) {
+        if (start >= end || end - start > 9) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = 10 * value + digit;
+        }
+        return value;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param pos The index to start at
+     * @param end The index after the last byte to look at
+     * @return Returns the index of the first byte at or after pos that is not a space, or end if none
+     */
+    private static int skipSpaces(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && buffer.get(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param pos The index to start at
+     * @param end The index after the last byte to look at
+     * @return Returns the index of the first byte at or after pos that is not an ASCII letter, or end if none
+     */
+    private static int skipLetters(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && ((buffer.get(pos) | 0x20) >= 'a') && ((buffer.get(pos) | 0x20) <= 'z')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param pos The index to start at
+     * @param end The index after the last byte to look at
+     * @return Returns the index of the first byte at or after pos that is not a decimal digit, or end if none
+     */
+    private static int skipDigits(ByteBuffer buffer, int pos, int end) {
+        while (pos < end && buffer.get(pos) >= '0' && buffer.get(pos) <= '9') {
+            pos++;
+        }
+        return pos;
+    }
+}
@@ -37,14 +37,43 @@ public class Utils {
     
     
     /**
-     * Returns all combinations of a given list of strings where the group size has is between a certain minimum value/ maximum value (inclusive)
+     * Determines the power-of-two table size for open addressing tables which keeps the load factor at most 1/2
+     * @param expectedSize The expected number of elements
+     * @return Returns the table size
+     */
+    public static int tableSizeFor(int expectedSize) {
+        int capacity = 16;
+        while (capacity < 2L * expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+
+    /**
+     * Scrambles the bits of the given key so that neighboring keys spread well across hash table slots (the MurmurHash3 finalizer).
+     * @param key The key to mix
+     * @return Returns the mixed bits
+     */
+    public static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+
+    /**
+     * Returns all combinations of a given list of items where the group size has is between a certain minimum value/ maximum value (inclusive)
      * @param minGroupSize The minimum size for the groups to find
      * @param maxGroupSize The maximum size for the groups to find
-     * @param all The list of strings
+     * @param all The list of items
      * @return A list of all sub-groups matching the given criteria
      */
-    public static List<List<String>> getAllCombinations(int minGroupSize, int maxGroupSize, List<String> all) {
-        List<List<String>> allCombinations = new ArrayList<List<String>>();
+    public static <T> List<List<T>> getAllCombinations(int minGroupSize, int maxGroupSize, List<T> all) {
+        List<List<T>> allCombinations = new ArrayList<List<T>>();
         for (int curSize = minGroupSize; curSize <= maxGroupSize; curSize++) {
             allCombinations.addAll(getCombinations(curSize, all));
         }
@@ -55,45 +84,91 @@ public class Utils {
     /**
      * Returns an ordered list of k-combinations of the given list where k == groupSize.
      * @param groupSize The number of elements each subset is supposed to have
-     * @param all A list of strings
+     * @param all A list of items
      */
-    public static List<List<String>> getCombinations(int groupSize, List<String> all) {
-        List<List<Integer>> combinationIndicesList = Utils.getTCombinations(groupSize, all.size());
-        List<List<String>> combinations = new ArrayList<List<String>>();
-        List<Integer> indices;
-        for (int i = 0; i < combinationIndicesList.size(); i++) { // loop over all available combinations of indices
-            List<String> combination = new ArrayList<String>();
-            indices = combinationIndicesList.get(i);
-            for (int j = 0; j < indices.size(); j++) {    // loop over all individual indices
-                combination.add(all.get(indices.get(j))); // convert current index into a string
+    public static <T> List<List<T>> getCombinations(int groupSize, final List<T> all) {
+        final List<List<T>> combinations = new ArrayList<List<T>>();
+        visitTCombinations(groupSize, all.size(), new int[groupSize], new CombinationVisitor() {
+            public boolean visit(int[] indices) { // called for all available combinations of indices
+                List<T> combination = new ArrayList<T>(indices.length);
+                for (int j = 0; j < indices.length; j++) {    // loop over all individual indices
+                    combination.add(all.get(indices[j]));     // convert current index into an item
+                }
+                combinations.add(combination);
+                return true;
             }
-            combinations.add(combination);
-        }
+        });
         return combinations;
     }
     
     
     
+    /**
+     * Receives the combinations generated by visitTCombinations() one at a time
+     */
+    public interface CombinationVisitor {
+        /**
+         * Handles a single combination
+         * @param combination The array holding the combination's indices in ascending order; overwritten by the next combination
+         * @return Returns whether to continue with the next combination; false stops the generation
+         */
+        boolean visit(int[] combination);
+    }
+
+
     /**
      * Generates the list of all t-combinations of indices of items from 0...n-1. 
-     * Implementation description: http://www-cs-faculty.stanford.edu/~knuth/fasc3a.ps.gz, page 9: Algorithm T (faster than Algorithm L)
-     * @param t The value for t: the number of desired items in the subset(s)
+     * Materializes every combination; use visitTCombinations() for large n.
+     * @param t The value for t: the number of desired items in the subset(s), at least 1
      * @param n The value for n: the set's size
      * @return Returns all possible (ordered) t-combinations of n 
      */
     public static List<List<Integer>> getTCombinations(int t, int n) {
-        if ((t > n) || ((n < 1) || (t < 1))) {
+        if (t < 1) {
             throw new IllegalArgumentException("Error: need to supply n and t values both > 1, where n >= t. You supplied n: " + n + ", t: " + t);
         }
-        List<List<Integer>> combinations = new ArrayList<List<Integer>>();
+        final List<List<Integer>> combinations = new ArrayList<List<Integer>>();
+        visitTCombinations(t, n, new int[t], new CombinationVisitor() {
+            public boolean visit(int[] c) {
+                List<Integer> combination = new ArrayList<Integer>(c.length);
+                for (int index : c) {
+                    combination.add(index);
+                }
+                combinations.add(combination);
+                return true;
+            }
+        });
+        return combinations;
+    }
+
+
+    /**
+     * Visits all t-combinations of indices of items from 0...n-1 in the same order as getTCombinations(), 
+     * without creating any object per combination: each one is written into the given array and handed to the visitor.
+     * The order is colexicographic: the combinations are sorted by their largest index, then by the next smaller one, and so on.
+     * Implementation description: http://www-cs-faculty.stanford.edu/~knuth/fasc3a.ps.gz, page 9: Algorithm T (faster than Algorithm L)
+     * @param t The value for t: the number of desired items in the subset(s), between 0 (a single, empty combination) and n
+     * @param n The value for n: the set's size
+     * @param combination The array receiving each combination's indices; needs to hold at least t elements
+     * @param visitor The visitor called for each combination
+     * @return Returns true if all combinations were visited, false if the visitor stopped early
+     */
+    public static boolean visitTCombinations(int t, int n, int[] combination, CombinationVisitor visitor) {
+        if ((t > n) || (t < 0)) {
+            throw new IllegalArgumentException("Error: need to supply n and t values both >= 0, where n >= t. You supplied n: " + n + ", t: " + t);
+        }
+        if (combination.length < t) {
+            throw new IllegalArgumentException("Error: the combination array needs to hold t = " + t + " elements, but has length " + combination.length);
+        }
         
-        if (t == n) { // special case, only one combination with all indices
-            List<Integer> combination = new ArrayList<Integer>();
+        if (t == n) { // special case, only one combination with all indices (which is empty for n == 0)
             for (int i = 1; i <= t; i++) {
-                combination.add(i - 1);
+                combination[i - 1] = i - 1;
             }
-            combinations.add(combination);
-            return combinations;
+            return visitor.visit(combination);
+        }
+        if (t == 0) { // Algorithm T needs t >= 1
+            return visitor.visit(combination);
         }
         
         // Step T1: Initialize
@@ -109,11 +184,10 @@ public class Utils {
             // Step T2: Visit
             // j is now the smallest index such that c[j + 1] > j 
             // harvest c[1] through c[t]
-            List<Integer> combination = new ArrayList<Integer>();
-            for (int i = 1; i <= t; i++) {
-                combination.add(c[i]);
+            System.arraycopy(c, 1, combination, 0, t);
+            if (!visitor.visit(combination)) {
+                return false;
             }
-            combinations.add(combination);
             
             int x;
             if (j > 0) {
@@ -150,7 +224,7 @@ public class Utils {
             c[j] = x;
             j--;
         }
-        return combinations;
+        return true;
     }
 
     
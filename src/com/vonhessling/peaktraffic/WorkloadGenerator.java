@@ -0,0 +1,504 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * Writes synthetic interaction logs in the input format, together with the clusters they contain, for scaling studies.
+ * The log is made of:
+ * <ul>
+ * <li>planted clusters: groups of nodes where every member interacts with every other one, in both directions. By default
+ * they are disjoint; with an overlap, each one shares that many members with the previous one;</li>
+ * <li>background traffic between nodes drawn from a power-law degree distribution: low IDs are the hubs. A share of the
+ * background pairs is mutual, the rest only ever interacts from the lower towards the higher ID, so it is never reciprocated;</li>
+ * <li>repetitions of recent interactions.</li>
+ * </ul>
+ * By default, mutual background pairs always connect an even and an odd ID, and never a member of a planted cluster, so the mutual
+ * background graph is bipartite and has no triangle: the clusters of the log are exactly the planted ones, which makes the expected
+ * output exact (without a time window) and cheap to write. Overlapping plants keep it exact: each plant is an interval of IDs that
+ * starts and ends after the previous one, so no plant contains another, and the two extreme members of any clique among them share
+ * a plant, which holds all IDs in between and with them the whole clique. A background whose mutual pairs connect any two nodes
+ * forms triangles and larger cliques among the hubs, for realistic workloads; its cliques are not tracked, so no expected output is
+ * written for it.
+ * The lines are written as they are generated, so the log size is only limited by the disk.
+ * @author hessling
+ */
+public class WorkloadGenerator {
+
+    private static final String USAGE = "Usage: [-nodes <n>] [-lines <n>] [-exponent <degree exponent>] [-reciprocity <rate>] [-duplicates <rate>]"
+            + " [-clusters <size>:<count>,...] [-overlap <n>] [-seed <n>] <log file> <expected output file>\n"
+            + "       [-triangles] [other options] <log file>";
+
+    private static final long START_TIME = 1229046781L; // Thu Dec 11 17:53:01 PST 2008
+    private static final ZoneOffset PST = ZoneOffset.ofHours(-8);
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss 'PST' yyyy", Locale.US);
+    private static final byte[] EMAIL_PREFIX = "user".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] EMAIL_SUFFIX = "@example.com".getBytes(StandardCharsets.US_ASCII);
+    private static final int RECENT_SIZE = 1024;         // the number of recent interactions repetitions are drawn from
+    private static final int PENDING_SIZE = 1024;        // the maximal number of mutual pairs waiting for their reverse direction
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private int numNodes = 1000000;
+    private long numLines = 10000000L;
+    private double degreeExponent = 2.5;
+    private double reciprocity = 0.3;
+    private double duplicates = 0.1;
+    private int[] clusterSizes = {3, 3, 3, 3, 3, 4, 4, 4, 5, 5, 8, 13};
+    private int overlap = 0;
+    private boolean bipartiteBackground = true;
+    private long seed = 1L;
+
+    private SplittableRandom random;
+    private double sampleExponent;  // turns uniform random numbers into power-law distributed IDs, see sampleNode()
+    private int numBackgroundNodes; // the nodes below this ID take part in background traffic; the ones above form the planted clusters
+
+    private long time;
+    private long dateDay = Long.MIN_VALUE; // the day (in PST) date holds
+    private byte[] date;                   // the formatted date of time
+    private int[] recentFrom = new int[RECENT_SIZE];
+    private int[] recentTo = new int[RECENT_SIZE];
+    private long numRecent = 0;
+    private int[] pendingFrom = new int[PENDING_SIZE]; // the reverse directions of mutual pairs not written yet, in a ring
+    private int[] pendingTo = new int[PENDING_SIZE];
+    private long firstPending = 0;
+    private int numPending = 0;
+
+    private byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+    private int bufferSize = 0;
+    private OutputStream out;
+
+    /**
+     * @param numNodes The number of distinct users, including the members of the planted clusters
+     */
+    public void setNumNodes(int numNodes) {
+        this.numNodes = numNodes;
+    }
+
+    /**
+     * @param numLines The number of lines to write
+     */
+    public void setNumLines(long numLines) {
+        this.numLines = numLines;
+    }
+
+    /**
+     * @param degreeExponent The exponent of the power-law degree distribution of the background traffic; needs to be greater than 2
+     */
+    public void setDegreeExponent(double degreeExponent) {
+        this.degreeExponent = degreeExponent;
+    }
+
+    /**
+     * @param reciprocity The share of background pairs that interact in both directions, between 0 and 1
+     */
+    public void setReciprocity(double reciprocity) {
+        this.reciprocity = reciprocity;
+    }
+
+    /**
+     * @param duplicates The share of lines repeating a recent interaction, between 0 and 1
+     */
+    public void setDuplicates(double duplicates) {
+        this.duplicates = duplicates;
+    }
+
+    /**
+     * @param clusterSizes The sizes of the planted clusters, each at least 3
+     */
+    public void setClusterSizes(int[] clusterSizes) {
+        this.clusterSizes = clusterSizes.clone();
+    }
+
+    /**
+     * @param overlap The number of members each planted cluster shares with the previous one, below the size of every cluster
+     */
+    public void setOverlap(int overlap) {
+        this.overlap = overlap;
+    }
+
+    /**
+     * @param bipartiteBackground Whether mutual background pairs only connect an even and an odd ID, so they never form a triangle,
+     * or connect any two background nodes
+     */
+    public void setBipartiteBackground(boolean bipartiteBackground) {
+        this.bipartiteBackground = bipartiteBackground;
+    }
+
+    /**
+     * @param seed The seed of the random numbers; the same settings and seed always yield the same log
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Writes the log and the clusters it contains
+     * @param logFileName The name of the log file to write
+     * @param expectedFileName The name of the file to write the expected output to: the planted clusters in the output format.
+     * Needs to be null if the background is not bipartite, as its clusters are unknown; may be null to only write the log.
+     * @throws FileNotFoundException Throws FileNotFoundException if a file cannot be created.
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    public void generate(String logFileName, String expectedFileName) throws FileNotFoundException, IOException {
+        if (!bipartiteBackground && expectedFileName != null) {
+            throw new IllegalArgumentException("The clusters of a background with triangles are unknown, no expected output can be written");
+        }
+        if (degreeExponent <= 2) {
+            throw new IllegalArgumentException("Degree exponent needs to be greater than 2: " + degreeExponent);
+        }
+        if (reciprocity < 0 || reciprocity > 1 || duplicates < 0 || duplicates >= 1) {
+            throw new IllegalArgumentException("Rates need to be between 0 and 1: " + reciprocity + ", " + duplicates);
+        }
+        long numClusterNodes = 0;
+        long numClusterLines = 0;
+        for (int size : clusterSizes) {
+            if (size < AbstractDetector.MIN_CLUSTER_SIZE) {
+                throw new IllegalArgumentException("Planted clusters need at least " + AbstractDetector.MIN_CLUSTER_SIZE + " members: " + size);
+            }
+            if (overlap < 0 || overlap >= size) {
+                // a cluster sharing all of its members with its neighbors would not be a maximal clique
+                throw new IllegalArgumentException("The overlap needs to be below the size of every planted cluster: " + overlap + ", " + size);
+            }
+            numClusterNodes += size - overlap;
+            numClusterLines += (long) size * (size - 1);
+        }
+        if (clusterSizes.length > 0) {
+            numClusterNodes += overlap; // the first cluster shares no members
+        }
+        if (numNodes - numClusterNodes < 2) {
+            throw new IllegalArgumentException("Not enough nodes for the planted clusters: " + numNodes);
+        }
+        if (numLines < numClusterLines) {
+            throw new IllegalArgumentException("Not enough lines for the planted clusters: " + numLines + " < " + numClusterLines);
+        }
+        random = new SplittableRandom(seed);
+        // weights (i + 1)^(-1 / (exponent - 1)) yield a power-law degree distribution with the given exponent;
+        // inverting their (continuous) cumulative distribution gives ID = n * u^((exponent - 1) / (exponent - 2)) for uniform u
+        sampleExponent = (degreeExponent - 1) / (degreeExponent - 2);
+        numBackgroundNodes = (int) (numNodes - numClusterNodes);
+        time = START_TIME;
+        dateDay = Long.MIN_VALUE;
+        numRecent = 0;
+        firstPending = 0;
+        numPending = 0;
+        bufferSize = 0;
+
+        out = new FileOutputStream(logFileName);
+        try {
+            writeLog(numClusterLines);
+            flush();
+        } finally {
+            out.close();
+        }
+        if (expectedFileName != null) {
+            writeExpected(expectedFileName, getPlantedClusters());
+        }
+    }
+
+    /**
+     * Writes all lines, spreading the lines of the planted clusters evenly among the background traffic.
+     * The reverse direction of a mutual background pair follows a few lines later; enough lines are reserved
+     * for the pending reverse directions and the remaining cluster lines, so the log ends with all of them written.
+     * @param numClusterLines The number of lines of the planted clusters
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private void writeLog(long numClusterLines) throws IOException {
+        int cluster = 0;
+        int clusterStart = numBackgroundNodes; // the first member of the current planted cluster
+        int member1 = 0;                       // the current pair of members, as offsets from clusterStart
+        int member2 = 1;
+        long remainingClusterLines = numClusterLines;
+        for (long line = 0; line < numLines; line++) {
+            if (random.nextDouble() < 0.25) {
+                time++;
+            }
+            long remaining = numLines - line;
+            long free = remaining - remainingClusterLines - numPending; // the lines not reserved yet
+            if (remainingClusterLines > 0 && ((free == 0 && numPending == 0) || random.nextDouble() * remaining < remainingClusterLines)) {
+                writeLine(clusterStart + member1, clusterStart + member2);
+                remainingClusterLines--;
+                // next ordered pair of distinct members, then the next cluster:
+                member2++;
+                if (member2 == member1) {
+                    member2++;
+                }
+                if (member2 == clusterSizes[cluster]) {
+                    member1++;
+                    member2 = 0;
+                    if (member1 == clusterSizes[cluster]) {
+                        clusterStart += clusterSizes[cluster] - overlap;
+                        cluster++;
+                        member1 = 0;
+                        member2 = 1;
+                    }
+                }
+            } else if (numPending > 0 && (free == 0 || random.nextDouble() < 0.5)) {
+                int pending = (int) (firstPending % PENDING_SIZE);
+                firstPending++;
+                numPending--;
+                writeLine(pendingFrom[pending], pendingTo[pending]);
+            } else if (numRecent > 0 && random.nextDouble() < duplicates) {
+                int recent = (int) ((numRecent - 1 - random.nextInt((int) Math.min(numRecent, RECENT_SIZE))) % RECENT_SIZE);
+                writeLine(recentFrom[recent], recentTo[recent]);
+            } else {
+                writeBackgroundLine(free >= 2 && numPending < PENDING_SIZE);
+            }
+        }
+    }
+
+    /**
+     * Writes a line of background traffic: the first direction of a mutual pair, or a one-way interaction
+     * @param mutualAllowed Whether a line is left for the reverse direction of a mutual pair
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private void writeBackgroundLine(boolean mutualAllowed) throws IOException {
+        int node1 = sampleNode(numBackgroundNodes);
+        if (mutualAllowed && random.nextDouble() < reciprocity) {
+            // unless triangles are wanted, mutual pairs connect an even and an odd ID, so they never form one:
+            for (int attempt = 0; attempt < 16; attempt++) {
+                int node2 = sampleNode(numBackgroundNodes);
+                if (bipartiteBackground ? ((node1 ^ node2) & 1) == 1 : node1 != node2) {
+                    writeLine(node1, node2);
+                    int pending = (int) ((firstPending + numPending) % PENDING_SIZE);
+                    pendingFrom[pending] = node2;
+                    pendingTo[pending] = node1;
+                    numPending++;
+                    return;
+                }
+            }
+        }
+        // one-way interactions go from the lower to the higher ID only, so they are never reciprocated;
+        // some go to the members of planted clusters, drawn uniformly
+        int node2 = (random.nextDouble() < 0.9) ? sampleNode(numBackgroundNodes) : numBackgroundNodes + random.nextInt(numNodes - numBackgroundNodes);
+        if (node1 == node2) {
+            node2 = node1 + 1;
+        }
+        writeLine(Math.min(node1, node2), Math.max(node1, node2));
+    }
+
+    /**
+     * Draws a node from the power-law distribution
+     * @param bound The number of nodes to draw from
+     * @return Returns an ID below bound; low IDs are drawn far more often
+     */
+    private int sampleNode(int bound) {
+        return (int) Math.min(bound - 1, (long) (bound * Math.pow(random.nextDouble(), sampleExponent)));
+    }
+
+    /**
+     * Writes a single line at the current time and adds it to the recent interactions
+     * @param fromId The ID of the sender
+     * @param toId The ID of the recipient
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private void writeLine(int fromId, int toId) throws IOException {
+        if (bufferSize + 128 > buffer.length) {
+            flush();
+        }
+        byte[] formatted = formatDate();
+        System.arraycopy(formatted, 0, buffer, bufferSize, formatted.length);
+        bufferSize += formatted.length;
+        buffer[bufferSize++] = '\t';
+        writeEmail(fromId);
+        buffer[bufferSize++] = '\t';
+        writeEmail(toId);
+        buffer[bufferSize++] = '\n';
+        int recent = (int) (numRecent++ % RECENT_SIZE);
+        recentFrom[recent] = fromId;
+        recentTo[recent] = toId;
+    }
+
+    /**
+     * Writes the email of the given node to the buffer
+     * @param id The node's ID
+     */
+    private void writeEmail(int id) {
+        System.arraycopy(EMAIL_PREFIX, 0, buffer, bufferSize, EMAIL_PREFIX.length);
+        bufferSize += EMAIL_PREFIX.length;
+        int numDigits = 1;
+        for (int rest = id / 10; rest > 0; rest /= 10) {
+            numDigits++;
+        }
+        for (int i = bufferSize + numDigits - 1; i >= bufferSize; i--) {
+            buffer[i] = (byte) ('0' + id % 10);
+            id /= 10;
+        }
+        bufferSize += numDigits;
+        System.arraycopy(EMAIL_SUFFIX, 0, buffer, bufferSize, EMAIL_SUFFIX.length);
+        bufferSize += EMAIL_SUFFIX.length;
+    }
+
+    /**
+     * @param id The node's ID
+     * @return Returns the email of the given node
+     */
+    private static String getEmail(int id) {
+        return new String(EMAIL_PREFIX, StandardCharsets.US_ASCII) + id + new String(EMAIL_SUFFIX, StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Formats the current time like "Thu Dec 11 17:53:01 PST 2008". Only the time of day is updated in place,
+     * the whole date is only formatted once per day.
+     * @return Returns the formatted date
+     */
+    private byte[] formatDate() {
+        long local = time - 8 * 3600;
+        long day = Math.floorDiv(local, 86400);
+        if (day != dateDay) {
+            date = DATE_FORMAT.format(LocalDateTime.ofEpochSecond(time, 0, PST)).getBytes(StandardCharsets.US_ASCII);
+            dateDay = day;
+        }
+        int secondOfDay = Math.floorMod(local, 86400);
+        writeTwoDigits(secondOfDay / 3600, 11);
+        writeTwoDigits(secondOfDay / 60 % 60, 14);
+        writeTwoDigits(secondOfDay % 60, 17);
+        return date;
+    }
+
+    /**
+     * @param value The value, between 0 and 99
+     * @param position The position of the first digit in date
+     */
+    private void writeTwoDigits(int value, int position) {
+        date[position] = (byte) ('0' + value / 10);
+        date[position + 1] = (byte) ('0' + value % 10);
+    }
+
+    /**
+     * Writes the buffer's contents and clears it
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private void flush() throws IOException {
+        out.write(buffer, 0, bufferSize);
+        bufferSize = 0;
+    }
+
+    /**
+     * @return Returns the planted clusters of the last generated log in the output format, each with its members in alphabetical order
+     */
+    List<String> getPlantedClusters() {
+        List<String> lines = new ArrayList<String>(clusterSizes.length);
+        int clusterStart = numBackgroundNodes;
+        for (int size : clusterSizes) {
+            List<String> members = new ArrayList<String>(size);
+            for (int id = clusterStart; id < clusterStart + size; id++) {
+                members.add(getEmail(id));
+            }
+            Collections.sort(members);
+            StringBuilder line = new StringBuilder();
+            for (String member : members) {
+                if (line.length() > 0) {
+                    line.append(", ");
+                }
+                line.append(member);
+            }
+            lines.add(line.toString());
+            clusterStart += size - overlap;
+        }
+        return lines;
+    }
+
+    /**
+     * Writes the expected output: the given clusters in alphabetical order
+     * @param expectedFileName The name of the file to write
+     * @param lines The clusters in the output format
+     * @throws FileNotFoundException Throws FileNotFoundException if the file cannot be created.
+     */
+    private static void writeExpected(String expectedFileName, List<String> lines) throws FileNotFoundException {
+        Collections.sort(lines);
+        PrintWriter writer = new PrintWriter(expectedFileName);
+        try {
+            for (String line : lines) {
+                writer.print(line);
+                writer.print('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Parses cluster sizes given as comma separated "size:count" entries, e.g. "3:100,5:20,8:1"
+     * @param spec The sizes
+     * @return Returns the size of each cluster
+     */
+    private static int[] parseClusterSizes(String spec) {
+        List<Integer> sizes = new ArrayList<Integer>();
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.split(":");
+            int count = (parts.length > 1) ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < count; i++) {
+                sizes.add(Integer.parseInt(parts[0].trim()));
+            }
+        }
+        int[] result = new int[sizes.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = sizes.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Generates a log and its expected output
+     * @param args Requires the log and expected output file names as last parameters, optionally preceded by options:
+     *  "-nodes <n>" the number of distinct users,
+     *  "-lines <n>" the number of lines,
+     *  "-exponent <degree exponent>" the exponent of the power-law degree distribution, greater than 2,
+     *  "-reciprocity <rate>" the share of background pairs interacting in both directions,
+     *  "-duplicates <rate>" the share of lines repeating a recent interaction,
+     *  "-clusters <size>:<count>,..." the sizes of the planted clusters,
+     *  "-overlap <n>" the number of members each planted cluster shares with the previous one,
+     *  "-triangles" lets mutual background pairs connect any two nodes rather than keeping the background bipartite;
+     *      only the log file name is given then, as its clusters are unknown,
+     *  "-seed <n>" the seed of the random numbers.
+     */
+    public static void main(String[] args) throws FileNotFoundException, IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        int i = 0;
+        for (; i < args.length && args[i].startsWith("-"); i++) {
+            if (args[i].equals("-nodes") && i + 1 < args.length) {
+                generator.setNumNodes(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-lines") && i + 1 < args.length) {
+                generator.setNumLines(Long.parseLong(args[++i]));
+            } else if (args[i].equals("-exponent") && i + 1 < args.length) {
+                generator.setDegreeExponent(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("-reciprocity") && i + 1 < args.length) {
+                generator.setReciprocity(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("-duplicates") && i + 1 < args.length) {
+                generator.setDuplicates(Double.parseDouble(args[++i]));
+            } else if (args[i].equals("-clusters") && i + 1 < args.length) {
+                generator.setClusterSizes(parseClusterSizes(args[++i]));
+            } else if (args[i].equals("-overlap") && i + 1 < args.length) {
+                generator.setOverlap(Integer.parseInt(args[++i]));
+            } else if (args[i].equals("-triangles")) {
+                generator.setBipartiteBackground(false);
+            } else if (args[i].equals("-seed") && i + 1 < args.length) {
+                generator.setSeed(Long.parseLong(args[++i]));
+            } else {
+                System.err.println("Error: unknown option " + args[i] + "!  " + USAGE);
+                System.exit(-1);
+            }
+        }
+        int numFiles = generator.bipartiteBackground ? 2 : 1;
+        if (args.length - i != numFiles) {
+            System.err.println("Error: need to provide the name of the log file" + (numFiles == 2 ? " and of the expected output file" : " only")
+                    + "!  " + USAGE);
+            System.exit(-1);
+        }
+        long startTime = System.currentTimeMillis();
+        generator.generate(args[i], (numFiles == 2) ? args[i + 1] : null);
+        System.err.println("Wrote " + generator.numLines + " lines in " + (System.currentTimeMillis() - startTime) + " ms");
+    }
+}
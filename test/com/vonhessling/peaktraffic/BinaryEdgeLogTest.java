@@ -0,0 +1,266 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of BinaryEdgeLog: converting text logs, replaying them like the text, and rejecting files that are no valid binary edge log
+ * @author hessling
+ */
+public class BinaryEdgeLogTest {
+
+    private File textLog;
+    private File binaryLog;
+
+    /**
+     * Creates the temporary files
+     * @throws IOException Throws IOException if the files cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        textLog = File.createTempFile("edges", ".txt");
+        binaryLog = File.createTempFile("edges", ".bin");
+    }
+
+    /**
+     * Deletes the temporary files
+     */
+    @After
+    public void tearDown() {
+        textLog.delete();
+        binaryLog.delete();
+    }
+
+    /**
+     * Converts a small log, and reads back the emails in order of first occurrence and one record per line with two tabs,
+     * including repetitions and an unparseable timestamp
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestLogs.line(TestLogs.START_TIME, "a", "b"));
+        lines.add("no tabs at all");
+        lines.add(TestLogs.line(TestLogs.START_TIME + 5, "b", "c"));
+        lines.add("not a date\tc\ta");
+        lines.add(TestLogs.line(TestLogs.START_TIME + 5, "b", "c"));
+        TestLogs.write(textLog, lines);
+        assertEquals(4, BinaryEdgeLog.convert(textLog.getPath(), binaryLog.getPath()));
+        assertTrue(BinaryEdgeLog.isBinary(binaryLog.getPath()));
+        assertFalse(BinaryEdgeLog.isBinary(textLog.getPath()));
+
+        final List<String> emails = new ArrayList<String>();
+        final List<String> records = new ArrayList<String>();
+        BinaryEdgeLog.read(binaryLog.getPath(), new BinaryEdgeLog.RecordHandler() {
+            public void handleDictionary(ByteBuffer dictionary, int[] offsets, int numEmails) {
+                for (int id = 0; id < numEmails; id++) {
+                    byte[] bytes = new byte[offsets[id + 1] - offsets[id]];
+                    for (int i = 0; i < bytes.length; i++) {
+                        bytes[i] = dictionary.get(offsets[id] + i);
+                    }
+                    emails.add(new String(bytes, StandardCharsets.UTF_8));
+                }
+            }
+
+            public void handleRecord(int fromId, int toId, int time) {
+                records.add(fromId + " " + toId + " " + time);
+            }
+        });
+        assertEquals(Arrays.asList("a", "b", "c"), emails);
+        assertEquals(Arrays.asList("0 1 " + TestLogs.START_TIME, "1 2 " + (TestLogs.START_TIME + 5),
+                "2 0 " + TimestampParser.INVALID, "1 2 " + (TestLogs.START_TIME + 5)), records);
+    }
+
+    /**
+     * Replaying a converted log finds the same clusters as reading the text, for both detectors, with and without a window,
+     * and with one or more threads
+     */
+    @Test
+    public void testReplayMatchesText() throws IOException {
+        Random random = new Random(19L);
+        List<String> lines = new ArrayList<String>();
+        int time = TestLogs.START_TIME;
+        for (int i = 0; i < 20000; i++) {
+            time += random.nextInt(2);
+            lines.add(TestLogs.line(time, "user" + random.nextInt(10), "user" + random.nextInt(10)));
+        }
+        TestLogs.write(textLog, lines);
+        BinaryEdgeLog.convert(textLog.getPath(), binaryLog.getPath());
+        for (int windowMinutes : new int[] { 0, 1, 2 }) {
+            for (int numThreads : new int[] { 1, 4 }) {
+                for (int detector = 0; detector < 2; detector++) {
+                    String message = "window " + windowMinutes + ", threads " + numThreads + ", detector " + detector;
+                    List<String> expected = TestLogs.findClusters(newDetector(detector, windowMinutes), textLog.getPath(), numThreads);
+                    assertFalse(message, expected.isEmpty());
+                    assertEquals(message, expected, TestLogs.findClusters(newDetector(detector, windowMinutes), binaryLog.getPath(), numThreads));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rejects files with another magic number or version, and files shorter than their number of records says
+     */
+    @Test
+    public void testRejectsInvalidFiles() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(TestLogs.line(TestLogs.START_TIME + i, "user" + (i % 7), "user" + (i % 5)));
+        }
+        TestLogs.write(textLog, lines);
+        BinaryEdgeLog.convert(textLog.getPath(), binaryLog.getPath());
+        RandomAccessFile file = new RandomAccessFile(binaryLog, "rw");
+        try {
+            file.seek(4);
+            file.writeInt(BinaryEdgeLog.VERSION + 1);
+            assertInvalid("Unsupported binary edge log version");
+            file.seek(4);
+            file.writeInt(BinaryEdgeLog.VERSION);
+            file.setLength(file.length() - 1); // cuts the last record
+            assertInvalid("Binary edge log is truncated");
+            file.seek(0);
+            file.writeInt(BinaryEdgeLog.MAGIC + 1);
+            assertFalse(BinaryEdgeLog.isBinary(binaryLog.getPath()));
+            assertInvalid("Not a binary edge log");
+            file.setLength(3);
+            assertFalse(BinaryEdgeLog.isBinary(binaryLog.getPath()));
+            assertInvalid("Not a binary edge log");
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Rejects files whose email count, dictionary size, offsets or record IDs are out of range; only the latter are found
+     * after handing out records
+     */
+    @Test
+    public void testRejectsCorruptContents() throws IOException {
+        List<String> lines = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            lines.add(TestLogs.line(TestLogs.START_TIME + i, "user" + (i % 7), "user" + (i % 5)));
+        }
+        TestLogs.write(textLog, lines);
+        BinaryEdgeLog.convert(textLog.getPath(), binaryLog.getPath());
+        RandomAccessFile file = new RandomAccessFile(binaryLog, "rw");
+        try {
+            file.seek(8);
+            int numEmails = file.readInt();
+            int dictionarySize = file.readInt();
+            assertEquals(7, numEmails);
+            long recordsStart = 16 + 4L * (numEmails + 1) + dictionarySize + 8;
+
+            corrupt(file, 8, -1, numEmails, "Invalid binary edge log header");
+            corrupt(file, 8, Integer.MAX_VALUE, numEmails, "Binary edge log is truncated");
+            corrupt(file, 12, -1, dictionarySize, "Invalid binary edge log header");
+            corrupt(file, 12, Integer.MAX_VALUE, dictionarySize, "Binary edge log is truncated");
+            corrupt(file, 12, dictionarySize - 1, dictionarySize, "Invalid binary edge log dictionary");
+            corrupt(file, 16, 1, 0, "Invalid binary edge log dictionary");
+            corrupt(file, 16 + 4 * 3, dictionarySize, 15, "Invalid binary edge log dictionary"); // the 4th offset, of user3
+            corrupt(file, recordsStart - 8, -1, 0, "Binary edge log is truncated"); // the high half of the number of records
+
+            // records are checked as they are handed over, so the ones before a corrupt record have been handled:
+            file.seek(recordsStart + 12 * 99); // the sender of the last record
+            file.writeInt(numEmails);
+            assertInvalidRecord(99);
+            file.seek(recordsStart + 12 * 99);
+            file.writeInt(1);
+            file.seek(recordsStart + 4); // the recipient of the first record
+            file.writeInt(-1);
+            assertInvalidRecord(0);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Overwrites an int of the binary log, asserts that reading it fails, and restores the int
+     * @param file The binary log
+     * @param position The position of the int
+     * @param value The value to write
+     * @param original The original value, checked before writing
+     * @param messagePrefix The expected start of the exception's message
+     * @throws IOException Throws IOException if error occurs reading or writing the file.
+     */
+    private void corrupt(RandomAccessFile file, long position, int value, int original, String messagePrefix) throws IOException {
+        file.seek(position);
+        assertEquals(original, file.readInt());
+        file.seek(position);
+        file.writeInt(value);
+        assertInvalid(messagePrefix);
+        file.seek(position);
+        file.writeInt(original);
+    }
+
+    /**
+     * Asserts that reading the binary log fails at the given record, after handing out the dictionary and the records before it
+     * @param record The index of the invalid record
+     */
+    private void assertInvalidRecord(long record) {
+        final long[] numHandled = new long[2];
+        try {
+            BinaryEdgeLog.read(binaryLog.getPath(), new BinaryEdgeLog.RecordHandler() {
+                public void handleDictionary(ByteBuffer dictionary, int[] offsets, int numEmails) {
+                    numHandled[0]++;
+                }
+
+                public void handleRecord(int fromId, int toId, int time) {
+                    numHandled[1]++;
+                }
+            });
+            fail("Read an invalid record");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Invalid binary edge log record " + record + ","));
+        }
+        assertEquals(1, numHandled[0]);
+        assertEquals(record, numHandled[1]);
+    }
+
+    /**
+     * Asserts that reading the binary log fails before handing anything to the handler
+     * @param messagePrefix The expected start of the exception's message
+     */
+    private void assertInvalid(String messagePrefix) {
+        try {
+            BinaryEdgeLog.read(binaryLog.getPath(), new BinaryEdgeLog.RecordHandler() {
+                public void handleDictionary(ByteBuffer dictionary, int[] offsets, int numEmails) {
+                }
+
+                public void handleRecord(int fromId, int toId, int time) {
+                    fail("Read a record of an invalid file");
+                }
+            });
+            fail("Read an invalid file");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(messagePrefix));
+        }
+    }
+
+    /**
+     * @param detector 0 for an online detector, 1 for a batch detector
+     * @param windowMinutes The length of the window, or 0 for none
+     * @return Returns a new detector
+     */
+    private static AbstractDetector newDetector(int detector, int windowMinutes) {
+        AbstractDetector result = detector == 0 ? new OnlineDetector() : new BatchDetector();
+        if (windowMinutes > 0) {
+            result.setWindow(60 * windowMinutes);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,141 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Tests of the online updates of ClusterFinder, against enumerating all maximal cliques from scratch
+ * @author hessling
+ */
+public class ClusterFinderTest {
+
+    /**
+     * Adds and removes random edges of small random graphs; after every step, the online clusters equal the maximal cliques
+     * found from scratch, so clusters subsumed by a new edge and clusters split by a removed edge are all handled
+     */
+    @Test
+    public void testRandomInsertionsAndRemovals() {
+        Random random = new Random(11L);
+        for (int round = 0; round < 30; round++) {
+            int numNodes = 6 + random.nextInt(10);
+            double removeProbability = 0.1 + 0.3 * random.nextDouble(); // sparser and denser graphs
+            Graph g = new Graph();
+            ClusterFinder finder = new ClusterFinder(g);
+            for (int step = 0; step < 300; step++) {
+                int node1 = random.nextInt(numNodes);
+                int node2 = random.nextInt(numNodes);
+                if (node1 == node2) {
+                    continue;
+                }
+                if (g.containsEdge(node1, node2)) {
+                    if (random.nextDouble() < removeProbability * 2) {
+                        removeEdge(g, finder, node1, node2);
+                    }
+                } else {
+                    addEdge(g, finder, node1, node2);
+                }
+                assertEquals("round " + round + ", step " + step, fromScratch(g), toStrings(finder.getClusters()));
+            }
+        }
+    }
+
+    /**
+     * Builds a clique of more than 64 nodes node by node, attaches a few nodes to parts of it, then removes and re-adds
+     * some edges, so the searches for new edges run on neighborhoods too large for a single bitset word,
+     * and removed edges split clusters of that size
+     */
+    @Test
+    public void testLargeNeighborhoods() {
+        Random random = new Random(13L);
+        int cliqueSize = 70;
+        Graph g = new Graph();
+        ClusterFinder finder = new ClusterFinder(g);
+        for (int node = 1; node < cliqueSize; node++) { // node by node, so there are never more than two maximal cliques
+            for (int other = 0; other < node; other++) {
+                addEdge(g, finder, other, node);
+            }
+            if (node % 10 == 0) {
+                assertEquals("node " + node, fromScratch(g), toStrings(finder.getClusters()));
+            }
+        }
+        for (int node = cliqueSize; node < cliqueSize + 4; node++) { // overlapping cliques with large parts of the big one
+            for (int other = 0; other < node; other++) {
+                if (random.nextInt(10) > 0) {
+                    addEdge(g, finder, other, node);
+                }
+            }
+            assertEquals("node " + node, fromScratch(g), toStrings(finder.getClusters()));
+        }
+        int[] removed = new int[2 * 6];
+        for (int i = 0; i < 6; i++) {
+            int node1;
+            int node2;
+            do {
+                node1 = random.nextInt(cliqueSize);
+                node2 = random.nextInt(cliqueSize);
+            } while (node1 == node2 || !g.containsEdge(node1, node2));
+            removeEdge(g, finder, node1, node2);
+            removed[2 * i] = node1;
+            removed[2 * i + 1] = node2;
+            assertEquals("removed edge " + i, fromScratch(g), toStrings(finder.getClusters()));
+        }
+        for (int i = 0; i < 6; i++) {
+            addEdge(g, finder, removed[2 * i], removed[2 * i + 1]);
+            assertEquals("re-added edge " + i, fromScratch(g), toStrings(finder.getClusters()));
+        }
+    }
+
+    /**
+     * Adds the undirected edge to the graph and updates the clusters, like the online detector
+     * @param g The graph
+     * @param finder The finder of the graph
+     * @param node1 The first node
+     * @param node2 The second node
+     */
+    private static void addEdge(Graph g, ClusterFinder finder, int node1, int node2) {
+        g.addEdge(node1, node2);
+        g.addEdge(node2, node1);
+        finder.updateClustersEdge(node1, node2);
+    }
+
+    /**
+     * Removes the undirected edge from the graph and updates the clusters, like the online detector when an edge expires
+     * @param g The graph
+     * @param finder The finder of the graph
+     * @param node1 The first node
+     * @param node2 The second node
+     */
+    private static void removeEdge(Graph g, ClusterFinder finder, int node1, int node2) {
+        g.removeEdge(node1, node2);
+        g.removeEdge(node2, node1);
+        finder.updateClustersRemoved(node1, node2);
+    }
+
+    /**
+     * @param g The graph
+     * @return Returns the maximal cliques of the graph, enumerated from scratch
+     */
+    private static Set<String> fromScratch(Graph g) {
+        ClusterFinder finder = new ClusterFinder(g);
+        finder.findAllClusters();
+        return toStrings(finder.getClusters());
+    }
+
+    /**
+     * @param clusters The clusters
+     * @return Returns the clusters as sorted strings, so they can be compared as a whole
+     */
+    private static Set<String> toStrings(ClusterSet clusters) {
+        Set<String> result = new TreeSet<String>();
+        for (int[] cluster : clusters) {
+            result.add(Arrays.toString(cluster));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,149 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of ClusterSet and ClusterIndex
+ * @author hessling
+ */
+public class ClusterSetTest {
+
+    /**
+     * Adds and removes random clusters, compared with a HashSet; the table is kept small and full, so removals
+     * shift many entries back into their probe sequences
+     */
+    @Test
+    public void testAddRemoveAgainstHashSet() {
+        Random random = new Random(17L);
+        List<int[]> pool = randomClusters(random, 400, 12);
+        ClusterSet set = new ClusterSet(1);
+        Set<List<Integer>> expected = new HashSet<List<Integer>>();
+        for (int step = 0; step < 100000; step++) {
+            int[] cluster = pool.get(random.nextInt(pool.size()));
+            int[] copy = cluster.clone(); // equal members, different array
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(toList(cluster)), set.add(copy));
+            } else {
+                assertEquals(expected.remove(toList(cluster)), set.remove(cluster));
+            }
+            assertEquals(expected.size(), set.size());
+            if (step % 1000 == 0) {
+                for (int[] c : pool) {
+                    assertEquals(expected.contains(toList(c)), set.contains(c));
+                }
+                Set<List<Integer>> iterated = new HashSet<List<Integer>>();
+                for (int[] c : set) {
+                    assertTrue(iterated.add(toList(c)));
+                }
+                assertEquals(expected, iterated);
+            }
+        }
+    }
+
+    /**
+     * Returns the stored array of an equal cluster, and null for clusters not contained
+     */
+    @Test
+    public void testGet() {
+        ClusterSet set = new ClusterSet();
+        int[] cluster = { 1, 4, 9 };
+        set.add(cluster);
+        assertSame(cluster, set.get(new int[] { 1, 4, 9 }));
+        assertNull(set.get(new int[] { 1, 4 }));
+        assertFalse(set.add(new int[] { 1, 4, 9 }));
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(cluster));
+    }
+
+    /**
+     * Compares isStrictSubset() of an index with checking every indexed cluster, while clusters are added and removed
+     */
+    @Test
+    public void testIsStrictSubset() {
+        Random random = new Random(19L);
+        List<int[]> pool = randomClusters(random, 300, 8);
+        List<int[]> indexed = new ArrayList<int[]>();
+        ClusterIndex index = new ClusterIndex(indexed);
+        for (int step = 0; step < 3000; step++) {
+            if (indexed.isEmpty() || random.nextInt(3) > 0) {
+                int[] cluster = pool.get(random.nextInt(pool.size()));
+                indexed.add(cluster);
+                index.add(cluster);
+            } else {
+                int[] cluster = indexed.remove(random.nextInt(indexed.size()));
+                index.remove(cluster);
+            }
+            int[] query = pool.get(random.nextInt(pool.size()));
+            if (query.length > 1 && random.nextBoolean()) { // a strict subset of a pool cluster
+                query = Arrays.copyOfRange(query, 1, query.length);
+            }
+            assertEquals(isStrictSubsetOfAny(query, indexed), index.isStrictSubset(query));
+        }
+        assertFalse(index.isStrictSubset(new int[] { 1000 }));
+    }
+
+    /**
+     * @param random The random numbers
+     * @param numClusters The number of clusters
+     * @param numNodes The number of distinct nodes
+     * @return Returns random clusters of 1 to 6 members in ascending order, overlapping a lot
+     */
+    private static List<int[]> randomClusters(Random random, int numClusters, int numNodes) {
+        List<int[]> clusters = new ArrayList<int[]>();
+        for (int i = 0; i < numClusters; i++) {
+            Set<Integer> members = new HashSet<Integer>();
+            int size = 1 + random.nextInt(6);
+            while (members.size() < size) {
+                members.add(random.nextInt(numNodes));
+            }
+            int[] cluster = new int[size];
+            int j = 0;
+            for (int member : members) {
+                cluster[j++] = member;
+            }
+            Arrays.sort(cluster);
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    /**
+     * @param cluster The cluster
+     * @param clusters The clusters to check
+     * @return Returns whether one of the clusters contains all members of the given one and at least one more
+     */
+    private static boolean isStrictSubsetOfAny(int[] cluster, List<int[]> clusters) {
+        for (int[] candidate : clusters) {
+            if (candidate.length > cluster.length && toList(candidate).containsAll(toList(cluster))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param cluster The cluster
+     * @return Returns the members as a list
+     */
+    private static List<Integer> toList(int[] cluster) {
+        List<Integer> list = new ArrayList<Integer>();
+        for (int member : cluster) {
+            list.add(member);
+        }
+        return list;
+    }
+}
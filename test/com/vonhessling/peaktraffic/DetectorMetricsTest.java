@@ -0,0 +1,106 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of DetectorMetrics: the counters the detectors update while reading a log
+ * @author hessling
+ */
+public class DetectorMetricsTest {
+
+    private File log;
+
+    /**
+     * Creates the temporary file
+     * @throws IOException Throws IOException if the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        log = File.createTempFile("metrics", ".txt");
+    }
+
+    /**
+     * Deletes the temporary file
+     */
+    @After
+    public void tearDown() {
+        log.delete();
+    }
+
+    /**
+     * Counts parsed lines, repeated and self interactions and verified edges; without a window, timestamps are not parsed
+     */
+    @Test
+    public void testCounters() throws IOException {
+        int t = TestLogs.START_TIME;
+        write(TestLogs.line(t, "a", "b"), TestLogs.line(t, "a", "b"), "no tabs", TestLogs.line(t, "b", "a"),
+                TestLogs.line(t, "a", "a"), "not a date\tc\td");
+        for (int detector = 0; detector < 2; detector++) {
+            DetectorMetrics metrics = new DetectorMetrics();
+            AbstractDetector result = (detector == 0) ? new OnlineDetector() : new BatchDetector();
+            result.setMetrics(metrics);
+            result.readClusters(log.getPath(), 1);
+            String message = "detector " + detector;
+            assertEquals(message, 5, metrics.getLinesParsed());
+            assertEquals(message, 1, metrics.getInteractionsSkipped());
+            assertEquals(message, 1, metrics.getSelfInteractions());
+            assertEquals(message, 1, metrics.getEdgesVerified());
+            assertEquals(message, 0, metrics.getInvalidTimestamps());
+            assertEquals(message, 0, metrics.getEdgesExpired());
+        }
+    }
+
+    /**
+     * With a window, counts lines with invalid timestamps, lines older than the window and expired edges
+     */
+    @Test
+    public void testWindowCounters() throws IOException {
+        int t = TestLogs.START_TIME;
+        write(TestLogs.line(t, "a", "b"), "not a date\ta\tb", TestLogs.line(t + 1, "b", "a"), "Thu Feb 31 12:00:00 PST 2008\tb\ta",
+                TestLogs.line(t + 200, "c", "d"), TestLogs.line(t + 10, "d", "c"));
+        DetectorMetrics metrics = new DetectorMetrics();
+        OnlineDetector detector = new OnlineDetector();
+        detector.setMetrics(metrics);
+        detector.setWindow(60);
+        detector.readClusters(log.getPath(), 1);
+        assertEquals(6, metrics.getLinesParsed());
+        assertEquals(2, metrics.getInvalidTimestamps());
+        assertEquals(1, metrics.getOutsideWindow());
+        assertEquals(1, metrics.getEdgesVerified());
+        assertEquals(1, metrics.getEdgesExpired());
+        assertTrue(metrics.getSummary(), metrics.getSummary().contains(" invalidTimestamps=2 outsideWindow=1 "));
+    }
+
+    /**
+     * Counts the same lines and repetitions when parsing on several threads
+     */
+    @Test
+    public void testCountersWithThreads() throws IOException {
+        int t = TestLogs.START_TIME;
+        write(TestLogs.line(t, "a", "b"), TestLogs.line(t, "a", "b"), TestLogs.line(t, "b", "a"), TestLogs.line(t, "b", "a"));
+        DetectorMetrics metrics = new DetectorMetrics();
+        BatchDetector detector = new BatchDetector();
+        detector.setMetrics(metrics);
+        detector.readClusters(log.getPath(), 4);
+        assertEquals(4, metrics.getLinesParsed());
+        assertEquals(2, metrics.getInteractionsSkipped());
+        assertEquals(1, metrics.getEdgesVerified());
+    }
+
+    /**
+     * @param lines The lines to write into the log
+     * @throws IOException Throws IOException if error occurs writing the file.
+     */
+    private void write(String... lines) throws IOException {
+        TestLogs.write(log, Arrays.asList(lines));
+    }
+}
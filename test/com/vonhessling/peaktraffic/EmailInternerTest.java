@@ -0,0 +1,44 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests of EmailInterner
+ * @author hessling
+ */
+public class EmailInternerTest {
+
+    /**
+     * Interns more emails than the initial capacity of 1024 IDs, several growth steps deep, and reads each one back.
+     * Regression test: the hashes grew one entry short of the offsets, which failed on the 2049th distinct email.
+     */
+    @Test
+    public void testGrowth() {
+        EmailInterner interner = new EmailInterner();
+        int numEmails = 10000;
+        for (int i = 0; i < numEmails; i++) {
+            byte[] bytes = email(i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, interner.intern(bytes, 0, bytes.length));
+        }
+        assertEquals(numEmails, interner.size());
+        for (int i = 0; i < numEmails; i++) {
+            byte[] bytes = email(i).getBytes(StandardCharsets.UTF_8);
+            assertEquals(i, interner.intern(bytes, 0, bytes.length)); // known emails keep their ID
+            assertEquals(i, interner.getId(email(i)));
+            assertEquals(email(i), interner.getEmail(i));
+        }
+        assertEquals(numEmails, interner.size());
+    }
+
+    /**
+     * @param i The number of the email
+     * @return Returns a distinct email for each number
+     */
+    private static String email(int i) {
+        return "user" + i + "@example.com";
+    }
+}
@@ -0,0 +1,82 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of Graph over dense int node IDs, against a set of directed edges
+ * @author hessling
+ */
+public class GraphTest {
+
+    /**
+     * Adds and removes random edges among node IDs far beyond the initial array of neighbor sets, and compares
+     * every edge and neighbor set with the expected ones; edges are directed
+     */
+    @Test
+    public void testRandomEdges() {
+        Random random = new Random(3L);
+        int numNodes = 1000;
+        Graph graph = new Graph();
+        Set<Long> edges = new HashSet<Long>();
+        for (int i = 0; i < 20000; i++) {
+            int node1 = random.nextInt(numNodes);
+            int node2 = random.nextInt(numNodes);
+            long edge = ((long) node1 << 32) | node2;
+            if (random.nextInt(4) == 0) {
+                graph.removeEdge(node1, node2);
+                edges.remove(edge);
+            } else {
+                graph.addEdge(node1, node2);
+                edges.add(edge);
+            }
+        }
+        assertTrue(graph.getNodeIdBound() >= numNodes);
+        for (int node1 = 0; node1 < numNodes; node1++) {
+            int numNeighbors = 0;
+            for (int node2 = 0; node2 < numNodes; node2++) {
+                boolean expected = edges.contains(((long) node1 << 32) | node2);
+                assertEquals(node1 + " -> " + node2, expected, graph.containsEdge(node1, node2));
+                assertEquals(node1 + " -> " + node2, expected, graph.getDirectNeighbors(node1).contains(node2));
+                if (expected) {
+                    numNeighbors++;
+                }
+            }
+            assertEquals(numNeighbors, graph.getDirectNeighbors(node1).size());
+        }
+    }
+
+    /**
+     * Nodes without edges, including IDs beyond the bound, have no neighbors, and removing their edges does nothing
+     */
+    @Test
+    public void testUnknownNodes() {
+        Graph graph = new Graph();
+        graph.addEdge(2, 5);
+        int bound = graph.getNodeIdBound();
+        assertEquals(0, graph.getDirectNeighbors(5).size());
+        assertEquals(0, graph.getDirectNeighbors(bound + 100).size());
+        assertFalse(graph.containsEdge(5, 2));
+        assertFalse(graph.containsEdge(bound + 100, 2));
+        graph.removeEdge(bound + 100, 2);
+        graph.removeEdge(3, 2);
+        assertEquals(bound, graph.getNodeIdBound());
+        assertEquals(Arrays.toString(new int[] { 5 }), Arrays.toString(graph.getDirectNeighbors(2).toArray()));
+    }
+
+    /**
+     * Rejects negative node IDs
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeNode() {
+        new Graph().addEdge(1, -1);
+    }
+}
@@ -0,0 +1,197 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of InteractionWindow, and of the detectors keeping only the interactions within a window
+ * @author hessling
+ */
+public class InteractionWindowTest {
+
+    /**
+     * Expires exactly the directions whose latest time left the window, including repeated and slightly out of order ones,
+     * compared with a map of the latest time of each direction
+     */
+    @Test
+    public void testExpiryAgainstLatestTimes() {
+        int windowSeconds = 50;
+        InteractionWindow window = new InteractionWindow(windowSeconds);
+        Map<Long, Integer> latest = new HashMap<Long, Integer>(); // the directions in the window, with their latest time
+        Random random = new Random(3L);
+        int time = 1000;
+        int clock = 0; // the latest time seen, i.e. the window's end
+        for (int step = 0; step < 20000; step++) {
+            time += random.nextInt(3);
+            int lineTime = time - random.nextInt(5); // slightly out of order
+            clock = Math.max(clock, lineTime);
+            if (!window.advance(lineTime)) {
+                assertTrue(lineTime <= clock - windowSeconds);
+                continue;
+            }
+            Set<Long> expired = new HashSet<Long>();
+            long key;
+            while ((key = window.pollExpired()) != InteractionWindow.NONE) {
+                assertTrue(expired.add(key));
+            }
+            Set<Long> expected = new HashSet<Long>();
+            for (Map.Entry<Long, Integer> entry : latest.entrySet()) {
+                if (entry.getValue() <= clock - windowSeconds) {
+                    expected.add(entry.getKey());
+                }
+            }
+            assertEquals(expected, expired);
+            latest.keySet().removeAll(expired);
+            int from = random.nextInt(30);
+            int to = random.nextInt(30);
+            if (from == to) {
+                continue;
+            }
+            window.record(from, to, lineTime);
+            key = ((long) from << 32) | to;
+            Integer previous = latest.get(key);
+            latest.put(key, (previous == null) ? lineTime : Math.max(previous, lineTime));
+            assertEquals(latest.size(), window.size());
+        }
+    }
+
+    /**
+     * Reports times before the window's end minus its length as outside of it
+     */
+    @Test
+    public void testAdvance() {
+        InteractionWindow window = new InteractionWindow(10);
+        assertTrue(window.advance(100));
+        assertTrue(window.advance(95)); // late, but within the window
+        assertFalse(window.advance(90));
+        assertEquals(InteractionWindow.NONE, window.pollExpired());
+        window.record(1, 2, 95);
+        assertTrue(window.advance(104));
+        assertEquals(InteractionWindow.NONE, window.pollExpired());
+        assertTrue(window.advance(105));
+        long key = window.pollExpired();
+        assertEquals(1, InteractionWindow.getFrom(key));
+        assertEquals(2, InteractionWindow.getTo(key));
+        assertEquals(0, window.size());
+    }
+
+    /**
+     * A cluster only exists while all its directions are within the window: expiring a verified edge splits the cluster,
+     * and an expired pending direction no longer verifies a pair when the reverse direction occurs
+     * @throws IOException Throws IOException if error occurs writing or reading the log.
+     */
+    @Test
+    public void testDetectorsExpireVerifiedAndPendingEdges() throws IOException {
+        int t = TestLogs.START_TIME;
+        List<String> lines = new ArrayList<String>();
+        // a, b, c form a cluster within the first minute:
+        lines.add(TestLogs.line(t, "a", "b"));
+        lines.add(TestLogs.line(t + 1, "b", "a"));
+        lines.add(TestLogs.line(t + 2, "b", "c"));
+        lines.add(TestLogs.line(t + 3, "c", "b"));
+        lines.add(TestLogs.line(t + 4, "a", "c"));
+        lines.add(TestLogs.line(t + 5, "c", "a"));
+        // d -> e is pending, and expires before e -> d occurs; c, d, e never form a cluster:
+        lines.add(TestLogs.line(t + 10, "d", "e"));
+        lines.add(TestLogs.line(t + 20, "c", "d"));
+        // after two minutes, only these interactions are within the window:
+        lines.add(TestLogs.line(t + 120, "d", "c"));
+        lines.add(TestLogs.line(t + 121, "c", "e"));
+        lines.add(TestLogs.line(t + 122, "e", "c"));
+        lines.add(TestLogs.line(t + 123, "e", "d"));
+        // refresh a <-> b only; the cluster a, b, c has expired with b <-> c and a <-> c:
+        lines.add(TestLogs.line(t + 124, "a", "b"));
+        lines.add(TestLogs.line(t + 125, "b", "a"));
+        File log = File.createTempFile("window", ".txt");
+        try {
+            TestLogs.write(log, lines);
+            for (int mode = 0; mode < 2; mode++) {
+                AbstractDetector detector = (mode == 0) ? new OnlineDetector() : new BatchDetector();
+                detector.setWindow(60);
+                assertEquals(new ArrayList<String>(), TestLogs.findClusters(detector, log.getPath(), 1));
+                detector = (mode == 0) ? new OnlineDetector() : new BatchDetector();
+                detector.setWindow(600); // everything within the window
+                assertEquals(Arrays.asList("a, b, c", "c, d, e"), TestLogs.findClusters(detector, log.getPath(), 1));
+            }
+        } finally {
+            log.delete();
+        }
+    }
+
+    /**
+     * A line that moves the window's clock expires the interactions that left the window, even if the line itself is
+     * dropped, like an interaction with oneself
+     * @throws IOException Throws IOException if error occurs writing or reading the log.
+     */
+    @Test
+    public void testDroppedLineExpires() throws IOException {
+        int t = TestLogs.START_TIME;
+        List<String> lines = new ArrayList<String>();
+        lines.add(TestLogs.line(t, "a", "b"));
+        lines.add(TestLogs.line(t, "b", "a"));
+        lines.add(TestLogs.line(t, "b", "c"));
+        lines.add(TestLogs.line(t, "c", "b"));
+        lines.add(TestLogs.line(t, "a", "c"));
+        lines.add(TestLogs.line(t, "c", "a"));
+        lines.add(TestLogs.line(t + 120, "d", "d"));
+        File log = File.createTempFile("window", ".txt");
+        try {
+            TestLogs.write(log, lines);
+            DetectorMetrics metrics = new DetectorMetrics();
+            OnlineDetector detector = new OnlineDetector();
+            detector.setMetrics(metrics);
+            detector.setWindow(60);
+            assertEquals(new ArrayList<String>(), TestLogs.findClusters(detector, log.getPath(), 1));
+            assertEquals(3, metrics.getEdgesExpired());
+            assertEquals(1, metrics.getSelfInteractions());
+        } finally {
+            log.delete();
+        }
+    }
+
+    /**
+     * Windowed online output equals windowed batch output on random logs of a few users, for several window lengths
+     * @throws IOException Throws IOException if error occurs writing or reading the log.
+     */
+    @Test
+    public void testOnlineMatchesBatch() throws IOException {
+        Random random = new Random(5L);
+        File log = File.createTempFile("window", ".txt");
+        try {
+            for (int round = 0; round < 20; round++) {
+                List<String> lines = new ArrayList<String>();
+                int time = TestLogs.START_TIME;
+                for (int i = 0; i < 2000; i++) {
+                    time += random.nextInt(4);
+                    int from = random.nextInt(10);
+                    int to = random.nextInt(10);
+                    lines.add(TestLogs.line(time - random.nextInt(3), "user" + from, "user" + to));
+                }
+                TestLogs.write(log, lines);
+                for (int windowMinutes : new int[] { 1, 3, 10 }) {
+                    OnlineDetector online = new OnlineDetector();
+                    online.setWindow(60 * windowMinutes);
+                    BatchDetector batch = new BatchDetector();
+                    batch.setWindow(60 * windowMinutes);
+                    assertEquals(TestLogs.findClusters(batch, log.getPath(), 1), TestLogs.findClusters(online, log.getPath(), 1));
+                }
+            }
+        } finally {
+            log.delete();
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of LogFollower on a temporary file that grows, is rotated and is truncated between polls
+ * @author hessling
+ */
+public class LogFollowerTest {
+
+    private File directory;
+    private File log;
+    private File rotated;
+    private LogFollower follower;
+    private final List<String> lines = new ArrayList<String>(); // "from>to" of each parsed line
+    private final MappedLogParser.LineHandler handler = new MappedLogParser.LineHandler() {
+        public void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd) {
+            lines.add(getString(buffer, fromStart, fromEnd) + ">" + getString(buffer, toStart, toEnd));
+        }
+    };
+
+    /**
+     * Creates an empty temporary directory to hold the followed file
+     * @throws IOException Throws IOException if the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("follow").toFile();
+        log = new File(directory, "log.txt");
+        rotated = new File(directory, "log.txt.1");
+        follower = new LogFollower(log.getPath());
+    }
+
+    /**
+     * Closes the follower and deletes the temporary files
+     * @throws IOException Throws IOException if the follower cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException {
+        follower.close();
+        log.delete();
+        rotated.delete();
+        directory.delete();
+    }
+
+    /**
+     * Parses appended lines once their newline is written, and continues with the new file from its start after the file
+     * has been replaced or truncated, after parsing what remained of the old file
+     */
+    @Test
+    public void testAppendRotateTruncate() throws IOException {
+        assertFalse(follower.poll(handler)); // not created yet
+
+        append(log, TestLogs.line(TestLogs.START_TIME, "a", "b") + "\n" + TestLogs.line(TestLogs.START_TIME, "b", "c") + "\n");
+        String partial = TestLogs.line(TestLogs.START_TIME + 1, "c", "d");
+        append(log, partial.substring(0, partial.length() - 3));
+        assertPolled("a>b", "b>c");
+        assertFalse(follower.poll(handler)); // only the partial line is new
+
+        append(log, partial.substring(partial.length() - 3) + "\n" + TestLogs.line(TestLogs.START_TIME + 2, "d", "e") + "\n");
+        assertPolled("c>d", "d>e");
+
+        // rotation: the file is moved away and written to until the new file is created
+        assertTrue(log.renameTo(rotated));
+        append(rotated, TestLogs.line(TestLogs.START_TIME + 3, "e", "f") + "\n");
+        assertPolled("e>f");
+        append(rotated, TestLogs.line(TestLogs.START_TIME + 4, "f", "g")); // its last line never gets a newline
+        append(log, TestLogs.line(TestLogs.START_TIME + 5, "long-sender", "long-recipient") + "\n");
+        assertPolled("f>g", "long-sender>long-recipient");
+
+        // truncation: the same file starts over, shorter than what was parsed already
+        RandomAccessFile file = new RandomAccessFile(log, "rw");
+        try {
+            file.setLength(0);
+        } finally {
+            file.close();
+        }
+        append(log, TestLogs.line(TestLogs.START_TIME + 6, "x", "y") + "\n");
+        assertPolled("x>y");
+        assertFalse(follower.poll(handler));
+    }
+
+    /**
+     * Polls once and asserts the lines parsed by that poll
+     * @param expected The "from>to" of the expected lines, in order
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    private void assertPolled(String... expected) throws IOException {
+        lines.clear();
+        assertTrue(follower.poll(handler));
+        assertEquals(Arrays.asList(expected), lines);
+    }
+
+    /**
+     * Appends text to a file, creating it if needed
+     * @param file The file
+     * @param text The text to append
+     * @throws IOException Throws IOException if error occurs writing.
+     */
+    private static void append(File file, String text) throws IOException {
+        FileOutputStream out = new FileOutputStream(file, true);
+        try {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param start The index of the first byte
+     * @param end The index after the last byte
+     * @return Returns the given bytes of the buffer as a string
+     */
+    private static String getString(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
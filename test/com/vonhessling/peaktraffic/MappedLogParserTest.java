@@ -0,0 +1,137 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of MappedLogParser: the byte ranges it hands out for line endings, malformed lines and lines crossing a mapping window
+ * @author hessling
+ */
+public class MappedLogParserTest {
+
+    private File log;
+
+    /**
+     * Creates the temporary file
+     * @throws IOException Throws IOException if the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        log = File.createTempFile("mapped", ".txt");
+    }
+
+    /**
+     * Deletes the temporary file
+     */
+    @After
+    public void tearDown() {
+        log.delete();
+    }
+
+    /**
+     * Strips the carriage return of CRLF line endings from the recipient, and handles a last line without line break
+     */
+    @Test
+    public void testLineEndings() throws IOException {
+        write("d1\ta\tb\r\nd2\tc\td\nd3\te\tf\r\nd4\tg\th");
+        assertEquals(Arrays.asList("d1|a|b", "d2|c|d", "d3|e|f", "d4|g|h"), parse(new MappedLogParser()));
+    }
+
+    /**
+     * Skips empty lines and lines with fewer than two tabs; a third tab belongs to the recipient
+     */
+    @Test
+    public void testMissingTabs() throws IOException {
+        write("\nno tabs\r\none\ttab\n\r\nd1\ta\tb\nd2\t\t\nd3\ta\tb\tc\n\t\n");
+        assertEquals(Arrays.asList("d1|a|b", "d2||", "d3|a|b\tc"), parse(new MappedLogParser()));
+    }
+
+    /**
+     * Parses the same lines with mapping windows of every size from the longest line up, so lines cross the window
+     * boundaries at every position, including right after the carriage return of a CRLF ending
+     */
+    @Test
+    public void testLinesCrossingWindows() throws IOException {
+        StringBuilder contents = new StringBuilder();
+        List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            contents.append("date").append(i).append("\tuser").append(i).append("@example.com\tuser").append(i + 1).append("@example.com");
+            contents.append((i % 3 == 0) ? "\r\n" : "\n");
+            expected.add("date" + i + "|user" + i + "@example.com|user" + (i + 1) + "@example.com");
+        }
+        write(contents.toString());
+        for (int windowSize = 46; windowSize <= 200; windowSize++) {
+            assertEquals("window size " + windowSize, expected, parse(new MappedLogParser(windowSize)));
+        }
+    }
+
+    /**
+     * Fails on a line that does not fit into a window, rather than splitting it
+     */
+    @Test
+    public void testLineLongerThanWindow() throws IOException {
+        write("d1\ta\tb\nd2\tsomeone@example.com\tsomeone.else@example.com\n");
+        try {
+            parse(new MappedLogParser(16));
+            fail("Parsed a line longer than the window");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("Line at position 7 is longer than the window size of 16 bytes"));
+        }
+    }
+
+    /**
+     * @param contents The file's contents
+     * @throws IOException Throws IOException if error occurs writing the file.
+     */
+    private void write(String contents) throws IOException {
+        FileOutputStream out = new FileOutputStream(log);
+        try {
+            out.write(contents.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @param parser The parser
+     * @return Returns the date, sender and recipient of each line handed out, separated by "|"
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    private List<String> parse(MappedLogParser parser) throws IOException {
+        final List<String> lines = new ArrayList<String>();
+        parser.parse(log.getPath(), new MappedLogParser.LineHandler() {
+            public void handleLine(ByteBuffer buffer, int dateStart, int dateEnd, int fromStart, int fromEnd, int toStart, int toEnd) {
+                lines.add(decode(buffer, dateStart, dateEnd) + "|" + decode(buffer, fromStart, fromEnd) + "|" + decode(buffer, toStart, toEnd));
+            }
+        });
+        return lines;
+    }
+
+    /**
+     * @param buffer The buffer
+     * @param start The index of the first byte
+     * @param end The index after the last byte
+     * @return Returns the UTF-8 string in the given byte range
+     */
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,90 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of OnlineDetector, comparing it with itself on other settings and with BatchDetector, and of its per-user queries
+ * @author hessling
+ */
+public class OnlineDetectorTest {
+
+    /**
+     * Finds the same clusters with 4 threads as with one on a log of many small, interleaved components, whose verified
+     * edges fill several batches of edges updated concurrently by component
+     */
+    @Test
+    public void testThreadsMatchSingleThread() throws IOException {
+        Random random = new Random(17L);
+        int numGroups = 2000;
+        int groupSize = 7;
+        List<String> lines = new ArrayList<String>();
+        Set<Long> directions = new HashSet<Long>();
+        int numVerified = 0;
+        int time = TestLogs.START_TIME;
+        for (int i = 0; i < 100000; i++) {
+            time += random.nextInt(2);
+            int group = random.nextInt(numGroups);
+            int from = group * groupSize + random.nextInt(groupSize);
+            int to = group * groupSize + random.nextInt(groupSize);
+            if (from == to) {
+                continue;
+            }
+            lines.add(TestLogs.line(time, "user" + from, "user" + to));
+            if (directions.add(((long) from << 32) | to) && directions.contains(((long) to << 32) | from)) {
+                numVerified++;
+            }
+        }
+        assertTrue("only " + numVerified + " verified edges", numVerified > 2 * 8192);
+        File log = File.createTempFile("threads", ".txt");
+        try {
+            TestLogs.write(log, lines);
+            List<String> expected = TestLogs.findClusters(new OnlineDetector(), log.getPath(), 1);
+            assertTrue(expected.size() > numGroups);
+            assertEquals(expected, TestLogs.findClusters(new OnlineDetector(), log.getPath(), 4));
+            assertEquals(expected, TestLogs.findClusters(new BatchDetector(), log.getPath(), 4));
+        } finally {
+            log.delete();
+        }
+    }
+
+    /**
+     * Answers per-user queries from the inverted index: the clusters of members of one or two clusters, nothing for a known
+     * user without clusters, and nothing for an unknown user
+     */
+    @Test
+    public void testClustersOfUser() throws IOException {
+        String[][] pairs = { { "a", "b" }, { "a", "c" }, { "b", "c" }, { "b", "d" }, { "c", "d" } }; // clusters a, b, c and b, c, d
+        List<String> lines = new ArrayList<String>();
+        for (String[] pair : pairs) {
+            lines.add(TestLogs.line(TestLogs.START_TIME, pair[0], pair[1]));
+            lines.add(TestLogs.line(TestLogs.START_TIME, pair[1], pair[0]));
+        }
+        lines.add(TestLogs.line(TestLogs.START_TIME, "e", "a")); // never reciprocated
+        File log = File.createTempFile("user", ".txt");
+        try {
+            TestLogs.write(log, lines);
+            OnlineDetector detector = new OnlineDetector();
+            assertEquals(Arrays.asList("a, b, c", "b, c, d"), TestLogs.findClusters(detector, log.getPath(), 1));
+            assertEquals(Arrays.asList("a, b, c"), detector.getClusters("a"));
+            assertEquals(Arrays.asList("a, b, c", "b, c, d"), detector.getClusters("b"));
+            assertEquals(Arrays.asList("b, c, d"), detector.getClusters("d"));
+            assertEquals(Collections.emptyList(), detector.getClusters("e"));
+            assertEquals(Collections.emptyList(), detector.getClusters("unknown"));
+        } finally {
+            log.delete();
+        }
+    }
+}
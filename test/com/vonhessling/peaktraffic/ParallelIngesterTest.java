@@ -0,0 +1,61 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of ParallelIngester, splitting files into many more chunks than threads
+ * @author hessling
+ */
+public class ParallelIngesterTest {
+
+    /**
+     * Hands out every line exactly once and the distinct interactions in file order, whatever the chunk size,
+     * including chunks smaller than a line
+     */
+    @Test
+    public void testChunksInFileOrder() throws IOException {
+        Random random = new Random(29L);
+        List<String> lines = new ArrayList<String>();
+        Set<String> expected = new LinkedHashSet<String>(); // the distinct interactions, in order of first occurrence
+        for (int i = 0; i < 5000; i++) {
+            String from = "user" + random.nextInt(30);
+            String to = "user" + random.nextInt(30);
+            lines.add(TestLogs.line(TestLogs.START_TIME + i, from, to));
+            expected.add(from + ">" + to);
+        }
+        File log = File.createTempFile("chunks", ".txt");
+        try {
+            TestLogs.write(log, lines);
+            for (long chunkSize : new long[] { 1, 100, 4096, 1 << 20 }) {
+                for (int numThreads : new int[] { 1, 3 }) {
+                    final long[] numLines = new long[1];
+                    final Set<String> interactions = new LinkedHashSet<String>();
+                    new ParallelIngester(numThreads, chunkSize).ingest(log.getPath(), new ParallelIngester.ChunkConsumer() {
+                        public void consumeChunk(ParallelIngester.Chunk chunk) {
+                            numLines[0] += chunk.getNumLines();
+                            EmailInterner emails = chunk.getEmails();
+                            for (int i = 0; i < chunk.getNumEdges(); i++) {
+                                interactions.add(emails.getEmail(chunk.getFrom(i)) + ">" + emails.getEmail(chunk.getTo(i)));
+                            }
+                        }
+                    });
+                    String message = "chunk size " + chunkSize + ", threads " + numThreads;
+                    assertEquals(message, lines.size(), numLines[0]);
+                    assertEquals(message, new ArrayList<String>(expected), new ArrayList<String>(interactions));
+                }
+            }
+        } finally {
+            log.delete();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of ReciprocityMap: the result of each interaction for both directions, growth, removal and self-loops
+ * @author hessling
+ */
+public class ReciprocityMapTest {
+
+    /**
+     * A pair is verified by the first interaction in the opposite direction, from either side; all other interactions repeat
+     */
+    @Test
+    public void testBothDirections() {
+        ReciprocityMap map = new ReciprocityMap();
+        assertEquals(ReciprocityMap.FIRST_DIRECTION, map.recordInteraction(3, 7));
+        assertEquals(ReciprocityMap.REPEATED, map.recordInteraction(3, 7));
+        assertFalse(map.isVerified(3, 7));
+        assertEquals(ReciprocityMap.VERIFYING, map.recordInteraction(7, 3));
+        assertTrue(map.isVerified(3, 7));
+        assertTrue(map.isVerified(7, 3));
+        assertEquals(ReciprocityMap.REPEATED, map.recordInteraction(7, 3));
+        assertEquals(ReciprocityMap.REPEATED, map.recordInteraction(3, 7));
+
+        assertEquals(ReciprocityMap.FIRST_DIRECTION, map.recordInteraction(9, 2)); // from the higher ID first
+        assertEquals(ReciprocityMap.VERIFYING, map.recordInteraction(2, 9));
+        assertEquals(2, map.size());
+
+        assertTrue(map.removeInteraction(3, 7)); // the reverse direction stays, so the pair is pending again
+        assertFalse(map.isVerified(3, 7));
+        assertEquals(2, map.size());
+        assertEquals(ReciprocityMap.VERIFYING, map.recordInteraction(3, 7));
+        assertTrue(map.removeInteraction(3, 7));
+        assertFalse(map.removeInteraction(7, 3)); // no direction left
+        assertEquals(1, map.size());
+        assertFalse(map.removeInteraction(7, 3));
+        assertEquals(ReciprocityMap.FIRST_DIRECTION, map.recordInteraction(7, 3));
+    }
+
+    /**
+     * Records many random interactions, starting from a tiny table, and compares the results with sets of directions,
+     * then removes them all again
+     */
+    @Test
+    public void testGrowth() {
+        Random random = new Random(5L);
+        ReciprocityMap map = new ReciprocityMap(1);
+        Set<Long> directions = new HashSet<Long>();
+        Set<Long> pairs = new HashSet<Long>();
+        int numNodes = 500;
+        for (int i = 0; i < 100000; i++) {
+            int from = random.nextInt(numNodes);
+            int to = random.nextInt(numNodes);
+            if (from == to) {
+                continue;
+            }
+            boolean reverse = directions.contains(((long) to << 32) | from);
+            int expected;
+            if (directions.add(((long) from << 32) | to)) {
+                expected = reverse ? ReciprocityMap.VERIFYING : ReciprocityMap.FIRST_DIRECTION;
+            } else {
+                expected = ReciprocityMap.REPEATED;
+            }
+            assertEquals(from + " -> " + to, expected, map.recordInteraction(from, to));
+            pairs.add(((long) Math.min(from, to) << 32) | Math.max(from, to));
+        }
+        assertEquals(pairs.size(), map.size());
+        for (int node1 = 0; node1 < numNodes; node1++) {
+            for (int node2 = 0; node2 < numNodes; node2++) {
+                boolean verified = directions.contains(((long) node1 << 32) | node2) && directions.contains(((long) node2 << 32) | node1);
+                assertEquals(node1 + " - " + node2, verified, map.isVerified(node1, node2));
+            }
+        }
+        for (long direction : directions) {
+            map.removeInteraction((int) (direction >>> 32), (int) direction);
+        }
+        assertEquals(0, map.size());
+    }
+
+    /**
+     * Self-loops are rejected when recorded, and never verified or removed
+     */
+    @Test
+    public void testSelfLoops() {
+        ReciprocityMap map = new ReciprocityMap();
+        try {
+            map.recordInteraction(4, 4);
+            fail("Recorded a self-loop");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(0, map.size());
+        assertFalse(map.isVerified(4, 4));
+        assertFalse(map.removeInteraction(4, 4));
+        assertEquals(ReciprocityMap.FIRST_DIRECTION, map.recordInteraction(0, 4)); // only node 0 paired with itself would have the key 0 of free slots
+        assertEquals(ReciprocityMap.VERIFYING, map.recordInteraction(4, 0));
+        assertFalse(map.isVerified(0, 0));
+    }
+}
@@ -0,0 +1,81 @@
+package com.vonhessling.peaktraffic;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Writes small interaction logs for the tests and runs the detectors on them
+ * @author hessling
+ */
+final class TestLogs {
+
+    static final int START_TIME = 1229046781; // Thu Dec 11 17:53:01 PST 2008
+
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss 'PST' yyyy", Locale.US);
+
+    private TestLogs() {
+    }
+
+    /**
+     * @param time The seconds since the epoch
+     * @param from The sender's email
+     * @param to The recipient's email
+     * @return Returns the log line (without line break) of the given interaction, dated in PST
+     */
+    static String line(int time, String from, String to) {
+        return DATE_FORMAT.format(Instant.ofEpochSecond(time).atOffset(ZoneOffset.ofHours(-8))) + "\t" + from + "\t" + to;
+    }
+
+    /**
+     * Writes the given lines, each followed by a line break, into the given file
+     * @param file The file
+     * @param lines The lines
+     * @throws FileNotFoundException Throws FileNotFoundException if the file cannot be created.
+     */
+    static void write(File file, List<String> lines) throws FileNotFoundException {
+        PrintWriter writer = new PrintWriter(file);
+        try {
+            for (String line : lines) {
+                writer.print(line);
+                writer.print('\n');
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Finds the clusters of the given log with the given detector
+     * @param detector The detector, configured already (e.g. its window)
+     * @param fileName The log's file name
+     * @param numThreads The number of threads
+     * @return Returns the clusters in the output format, sorted like the printed output
+     * @throws IOException Throws IOException if error occurs reading the file.
+     */
+    static List<String> findClusters(AbstractDetector detector, String fileName, int numThreads) throws IOException {
+        return format(detector, detector.readClusters(fileName, numThreads));
+    }
+
+    /**
+     * @param detector The detector that found the clusters
+     * @param clusters The clusters
+     * @return Returns the clusters in the output format, sorted like the printed output
+     */
+    static List<String> format(AbstractDetector detector, ClusterSet clusters) {
+        List<String> result = new ArrayList<String>();
+        for (int[] cluster : clusters) {
+            result.add(detector.formatCluster(cluster));
+        }
+        Collections.sort(result);
+        return result;
+    }
+}
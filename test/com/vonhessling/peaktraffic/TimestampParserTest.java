@@ -0,0 +1,115 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests of TimestampParser, against java.time
+ * @author hessling
+ */
+public class TimestampParserTest {
+
+    private static final String[] ZONES = { "UTC", "GMT", "Z", "EST", "EDT", "CST", "CDT", "MST", "MDT", "PST", "PDT", "CET", "CEST" };
+    private static final int[] ZONE_OFFSET_HOURS = { 0, 0, 0, -5, -4, -6, -5, -7, -6, -8, -7, 1, 2 };
+
+    private static final DateTimeFormatter WITHOUT_YEAR = DateTimeFormatter.ofPattern("EEE MMM dd HH:mm:ss", Locale.US);
+    private static final DateTimeFormatter PADDED_DAY = DateTimeFormatter.ofPattern("EEE MMM ppd HH:mm:ss yyyy", Locale.US);
+
+    /**
+     * Parses random times in every known zone, formatted like the logs, and compares them with java.time
+     */
+    @Test
+    public void testRandomTimesInAllZones() {
+        Random random = new Random(1L);
+        for (int i = 0; i < 10000; i++) {
+            int zone = random.nextInt(ZONES.length);
+            long seconds = 86400L + (long) (random.nextDouble() * (Integer.MAX_VALUE - 2 * 86400L));
+            LocalDateTime local = LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.ofHours(ZONE_OFFSET_HOURS[zone]));
+            String date = WITHOUT_YEAR.format(local) + " " + ZONES[zone] + " " + local.getYear();
+            assertEquals(date, seconds, parse(date));
+        }
+    }
+
+    /**
+     * Parses the days around month ends, leap days and year ends, without a zone (UTC) and with the day padded by a space
+     */
+    @Test
+    public void testCalendarBoundaries() {
+        String[] days = { "1970-01-01", "1999-12-31", "2000-02-28", "2000-02-29", "2000-03-01", "2004-02-29", "2008-12-11",
+                "2009-04-09", "2010-12-31", "2011-01-01", "2012-02-29", "2037-12-31" };
+        for (String day : days) {
+            for (String time : new String[] { "00:00:00", "12:34:56", "23:59:59" }) {
+                LocalDateTime local = LocalDateTime.parse(day + "T" + time);
+                String date = PADDED_DAY.format(local);
+                assertEquals(date, local.toEpochSecond(ZoneOffset.UTC), parse(date));
+            }
+        }
+        assertEquals(Instant.parse("2008-12-12T01:53:01Z").getEpochSecond(), parse("Thu Dec 11 17:53:01 PST 2008"));
+        assertEquals(Instant.parse("2009-04-09T17:40:12Z").getEpochSecond(), parse("Fri Apr  9 17:40:12 2009"));
+    }
+
+    /**
+     * Rejects malformed timestamps, unknown zones and times outside the int range of seconds
+     */
+    @Test
+    public void testMalformed() {
+        String[] dates = { "", "Thu", "Thu Dex 11 17:53:01 PST 2008", "Thu Dec 11 17:53 PST 2008", "Thu Dec 11 17-53-01 PST 2008",
+                "Thu Dec 11 24:00:00 PST 2008", "Thu Dec 11 17:60:01 PST 2008", "Thu Dec 32 17:53:01 PST 2008",
+                "Thu Dec 0 17:53:01 PST 2008", "Thu Dec 11 17:53:01 XYZ 2008", "Thu Dec 11 17:53:01 PST", "Thu Dec 11 17:53:01 PST 20x8",
+                "Thu Dec 11 17:53:01 PST 2008 extra", "Wed Dec 31 23:59:59 UTC 1969", "Tue Jan 19 03:14:08 UTC 2038" };
+        for (String date : dates) {
+            assertEquals(date, TimestampParser.INVALID, TimestampParser.parse(buffer(date), 0, date.length()));
+        }
+    }
+
+    /**
+     * Rejects days past the end of their month rather than rolling them into the next one, and accepts leap days in leap years only
+     */
+    @Test
+    public void testDaysPastMonthEnd() {
+        String[] dates = { "Sat Feb 31 12:00:00 UTC 2009", "Fri Apr 31 12:00:00 UTC 2009", "Sun Jun 31 12:00:00 UTC 2009",
+                "Thu Sep 31 12:00:00 UTC 2009", "Tue Nov 31 12:00:00 UTC 2009", "Sun Feb 29 12:00:00 UTC 2009",
+                "Thu Feb 30 12:00:00 UTC 2008", "Wed Feb 29 12:00:00 UTC 2011" };
+        for (String date : dates) {
+            assertEquals(date, TimestampParser.INVALID, parse(date));
+        }
+        assertEquals(Instant.parse("2008-02-29T12:00:00Z").getEpochSecond(), parse("Fri Feb 29 12:00:00 UTC 2008"));
+        assertEquals(Instant.parse("2009-04-30T12:00:00Z").getEpochSecond(), parse("Thu Apr 30 12:00:00 UTC 2009"));
+        assertEquals(Instant.parse("2009-12-31T12:00:00Z").getEpochSecond(), parse("Thu Dec 31 12:00:00 UTC 2009"));
+    }
+
+    /**
+     * Parses the timestamp in the middle of a larger buffer, like a log line
+     */
+    @Test
+    public void testByteRange() {
+        String line = "xx\tThu Dec 11 17:53:01 PST 2008\ta@facebook.com";
+        assertEquals(1229046781L, TimestampParser.parse(buffer(line), 3, 3 + "Thu Dec 11 17:53:01 PST 2008".length()));
+    }
+
+    /**
+     * @param date The timestamp
+     * @return Returns the parsed seconds since the epoch, or INVALID
+     */
+    private static long parse(String date) {
+        return TimestampParser.parse(buffer(date), 0, date.length());
+    }
+
+    /**
+     * @param s The string
+     * @return Returns a buffer holding the string's ASCII bytes
+     */
+    private static ByteBuffer buffer(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.US_ASCII));
+    }
+}
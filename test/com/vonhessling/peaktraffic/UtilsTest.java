@@ -0,0 +1,211 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests of the combination helpers in Utils
+ * @author hessling
+ */
+public class UtilsTest {
+
+    /**
+     * Visits all t-combinations for several t and n: each is ascending, none repeats, their number is n choose t,
+     * and they come in the same order as from getTCombinations().
+     */
+    @Test
+    public void testVisitTCombinations() {
+        for (int n = 1; n <= 9; n++) {
+            for (int t = 1; t <= n; t++) {
+                final int[] combination = new int[t];
+                final List<List<Integer>> visited = new ArrayList<List<Integer>>();
+                final Set<List<Integer>> distinct = new HashSet<List<Integer>>();
+                boolean completed = Utils.visitTCombinations(t, n, combination, new Utils.CombinationVisitor() {
+                    public boolean visit(int[] c) {
+                        assertSame(combination, c); // written into the given array, nothing allocated per combination
+                        List<Integer> indices = new ArrayList<Integer>();
+                        for (int index : c) {
+                            indices.add(index);
+                        }
+                        visited.add(indices);
+                        distinct.add(indices);
+                        return true;
+                    }
+                });
+                assertTrue(completed);
+                assertEquals(binomial(n, t), visited.size());
+                assertEquals(visited.size(), distinct.size());
+                for (List<Integer> indices : visited) {
+                    for (int i = 0; i < t; i++) {
+                        assertTrue(indices.get(i) >= 0 && indices.get(i) < n);
+                        assertTrue(i == 0 || indices.get(i - 1) < indices.get(i));
+                    }
+                }
+                assertEquals(Utils.getTCombinations(t, n), visited);
+            }
+        }
+    }
+
+    /**
+     * Visits the combinations in colexicographic order: each one is greater than the previous one when comparing
+     * their indices from the largest down
+     */
+    @Test
+    public void testColexicographicOrder() {
+        List<String> expected = Arrays.asList("[0, 1]", "[0, 2]", "[1, 2]", "[0, 3]", "[1, 3]", "[2, 3]");
+        final List<String> visited = new ArrayList<String>();
+        Utils.visitTCombinations(2, 4, new int[2], new Utils.CombinationVisitor() {
+            public boolean visit(int[] c) {
+                visited.add(Arrays.toString(c));
+                return true;
+            }
+        });
+        assertEquals(expected, visited);
+
+        for (int n = 1; n <= 9; n++) {
+            for (int t = 1; t <= n; t++) {
+                final int size = t;
+                final int[] previous = new int[t];
+                final boolean[] first = { true };
+                Utils.visitTCombinations(t, n, new int[t], new Utils.CombinationVisitor() {
+                    public boolean visit(int[] c) {
+                        if (!first[0]) {
+                            int i = size - 1;
+                            while (i >= 0 && c[i] == previous[i]) {
+                                i--;
+                            }
+                            assertTrue(Arrays.toString(previous) + " before " + Arrays.toString(c), i >= 0 && previous[i] < c[i]);
+                        }
+                        first[0] = false;
+                        System.arraycopy(c, 0, previous, 0, size);
+                        return true;
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * There is exactly one combination of no items, for any n including 0, and of all n items; neither touches the array
+     * beyond its first t elements
+     */
+    @Test
+    public void testEmptyAndFullCombinations() {
+        for (int n = 0; n <= 5; n++) {
+            for (int t : new int[] { 0, n }) {
+                final int[] combination = { -1, -1, -1, -1, -1, -1, -1 };
+                final List<String> visited = new ArrayList<String>();
+                final int size = t;
+                assertTrue(Utils.visitTCombinations(t, n, combination, new Utils.CombinationVisitor() {
+                    public boolean visit(int[] c) {
+                        visited.add(Arrays.toString(Arrays.copyOf(c, size)));
+                        return true;
+                    }
+                }));
+                int[] all = new int[t];
+                for (int i = 0; i < t; i++) {
+                    all[i] = i;
+                }
+                assertEquals("n " + n + ", t " + t, Arrays.asList(Arrays.toString(all)), visited);
+                assertEquals(-1, combination[t]);
+            }
+        }
+    }
+
+    /**
+     * Stops visiting as soon as the visitor returns false
+    @Test
+    public void testEarlyTermination() {
+        final int[] numVisited = new int[1];
+        boolean completed = Utils.visitTCombinations(3, 20, new int[3], new Utils.CombinationVisitor() {
+            public boolean visit(int[] c) {
+                numVisited[0]++;
+                return numVisited[0] < 5;
+            }
+        });
+        assertFalse(completed);
+        assertEquals(5, numVisited[0]);
+
+        numVisited[0] = 0; // also when stopping at the single combination of the special cases
+        assertFalse(Utils.visitTCombinations(0, 3, new int[0], new Utils.CombinationVisitor() {
+            public boolean visit(int[] c) {
+                numVisited[0]++;
+                return false;
+            }
+        }));
+        assertEquals(1, numVisited[0]);
+    }
+
+    /**
+     * Maps the combinations of indices to the items
+     */
+    @Test
+    public void testGetCombinations() {
+        List<String> items = Arrays.asList("a", "b", "c", "d");
+        List<List<String>> pairs = Utils.getCombinations(2, items);
+        assertEquals(6, pairs.size());
+        Set<List<String>> expected = new HashSet<List<String>>();
+        expected.add(Arrays.asList("a", "b"));
+        expected.add(Arrays.asList("a", "c"));
+        expected.add(Arrays.asList("a", "d"));
+        expected.add(Arrays.asList("b", "c"));
+        expected.add(Arrays.asList("b", "d"));
+        expected.add(Arrays.asList("c", "d"));
+        assertEquals(expected, new HashSet<List<String>>(pairs));
+        assertEquals(4 + 6 + 4, Utils.getAllCombinations(1, 3, items).size());
+    }
+
+    /**
+     * Rejects t greater than n, negative t and an array too small for a combination
+     */
+    @Test
+    public void testInvalidArguments() {
+        Utils.CombinationVisitor visitor = new Utils.CombinationVisitor() {
+            public boolean visit(int[] c) {
+                return true;
+            }
+        };
+        try {
+            Utils.visitTCombinations(4, 3, new int[4], visitor);
+            fail("Accepted t > n");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Utils.visitTCombinations(-1, 3, new int[0], visitor);
+            fail("Accepted t < 0");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            Utils.visitTCombinations(3, 5, new int[2], visitor);
+            fail("Accepted a too small array");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * @param n The set's size
+     * @param t The subset's size
+     * @return Returns n choose t
+     */
+    private static long binomial(int n, int t) {
+        long result = 1;
+        for (int i = 1; i <= t; i++) {
+            result = result * (n - t + i) / i;
+        }
+        return result;
+    }
+}
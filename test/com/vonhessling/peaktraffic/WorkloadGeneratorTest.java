@@ -0,0 +1,124 @@
+package com.vonhessling.peaktraffic;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests of WorkloadGenerator: the expected output it writes is what the detectors find in the log
+ * @author hessling
+ */
+public class WorkloadGeneratorTest {
+
+    private File log;
+    private File expected;
+
+    /**
+     * Creates the temporary files
+     * @throws IOException Throws IOException if the files cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException {
+        log = File.createTempFile("workload", ".txt");
+        expected = File.createTempFile("workload", ".exp");
+    }
+
+    /**
+     * Deletes the temporary files
+     */
+    @After
+    public void tearDown() {
+        log.delete();
+        expected.delete();
+    }
+
+    /**
+     * By default, the expected output is exactly the disjoint planted clusters
+     */
+    @Test
+    public void testDisjointPlants() throws IOException {
+        WorkloadGenerator generator = newGenerator();
+        generator.setClusterSizes(new int[] { 3, 4, 6 });
+        List<String> clusters = generate(generator);
+        assertEquals(3, clusters.size());
+        assertEquals("user1994@example.com, user1995@example.com, user1996@example.com, user1997@example.com, "
+                + "user1998@example.com, user1999@example.com", clusters.get(clusters.size() - 1));
+    }
+
+    /**
+     * Planted clusters sharing members with their neighbors are all found as separate clusters
+     */
+    @Test
+    public void testOverlappingPlants() throws IOException {
+        WorkloadGenerator generator = newGenerator();
+        generator.setClusterSizes(new int[] { 3, 5, 4, 6, 3 });
+        generator.setOverlap(2);
+        List<String> clusters = generate(generator);
+        assertEquals(5, clusters.size());
+        assertTrue(clusters.contains("user1991@example.com, user1992@example.com, user1993@example.com, user1994@example.com"));
+        assertTrue(clusters.contains("user1993@example.com, user1994@example.com, user1995@example.com, user1996@example.com, "
+                + "user1997@example.com, user1998@example.com"));
+        assertTrue(clusters.contains("user1997@example.com, user1998@example.com, user1999@example.com"));
+    }
+
+    /**
+     * A background that is not bipartite adds clusters of its own among the hubs, next to the planted ones.
+     * Its clusters are unknown, so only the detectors are compared with each other.
+     */
+    @Test
+    public void testTriangles() throws IOException {
+        WorkloadGenerator generator = newGenerator();
+        generator.setClusterSizes(new int[] { 3, 4 });
+        generator.setBipartiteBackground(false);
+        generator.setReciprocity(0.6);
+        generator.generate(log.getPath(), null);
+        List<String> clusters = TestLogs.findClusters(new OnlineDetector(), log.getPath(), 1);
+        assertEquals(clusters, TestLogs.findClusters(new BatchDetector(), log.getPath(), 4));
+        assertTrue(clusters.size() > 2);
+        assertTrue(clusters.containsAll(generator.getPlantedClusters()));
+    }
+
+    /**
+     * No expected output is written for a background with triangles, as its clusters are unknown
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoExpectedOutputWithTriangles() throws IOException {
+        WorkloadGenerator generator = newGenerator();
+        generator.setBipartiteBackground(false);
+        generator.generate(log.getPath(), expected.getPath());
+    }
+
+    /**
+     * @return Returns a generator of a small log with 2000 nodes
+     */
+    private static WorkloadGenerator newGenerator() {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.setNumNodes(2000);
+        generator.setNumLines(20000);
+        generator.setSeed(23L);
+        return generator;
+    }
+
+    /**
+     * Generates the log, and asserts that both detectors find the expected output in it
+     * @param generator The generator
+     * @return Returns the expected output
+     * @throws IOException Throws IOException if error occurs reading or writing the files.
+     */
+    private List<String> generate(WorkloadGenerator generator) throws IOException {
+        generator.generate(log.getPath(), expected.getPath());
+        List<String> clusters = Files.readAllLines(expected.toPath(), StandardCharsets.UTF_8);
+        assertEquals(clusters, TestLogs.findClusters(new OnlineDetector(), log.getPath(), 1));
+        assertEquals(clusters, TestLogs.findClusters(new BatchDetector(), log.getPath(), 4));
+        return clusters;
+    }
+}